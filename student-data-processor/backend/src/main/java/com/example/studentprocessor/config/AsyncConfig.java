@@ -1,15 +1,43 @@
 package com.example.studentprocessor.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Configuration
 public class AsyncConfig implements AsyncConfigurer {
 
+    // Jobs waiting beyond this are rejected (TaskRejectedException) instead of queuing without limit
+    @Value("${app.async.queue-capacity:100}")
+    private int queueCapacity = 100;
+
+    // Generation jobs each use several worker threads of their own, so only a few run at once
+    @Value("${app.generation.max-concurrent-jobs:2}")
+    private int maxConcurrentGenerationJobs = 2;
+
+    @Value("${app.generation.queue-capacity:10}")
+    private int generationQueueCapacity = 10;
+
+    // Export jobs each hold a database connection (more with partitions), so only a few run at once
+    @Value("${app.export.max-concurrent-jobs:2}")
+    private int maxConcurrentExportJobs = 2;
+
+    @Value("${app.export.job-queue-capacity:20}")
+    private int exportJobQueueCapacity = 20;
+
+    // Streamed report downloads each hold a thread (and a database connection) until the client has the last byte
+    @Value("${app.export.stream-threads:8}")
+    private int exportStreamThreads = 8;
+
+    // Threads deflating xlsx output, shared by every workbook being written; 0 uses one per processor
+    @Value("${app.xlsx.deflate-threads:0}")
+    private int xlsxDeflateThreads = 0;
+
     @Bean(name = "dataProcessingExecutor")
     public Executor dataProcessingExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
@@ -18,7 +46,7 @@ public class AsyncConfig implements AsyncConfigurer {
         int corePoolSize = Runtime.getRuntime().availableProcessors();
         executor.setCorePoolSize(corePoolSize);
         executor.setMaxPoolSize(corePoolSize * 2);
-        executor.setQueueCapacity(1000);
+        executor.setQueueCapacity(queueCapacity);
         executor.setThreadNamePrefix("DataProcessor-");
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(60);
@@ -27,6 +55,66 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    @Bean(name = "generationExecutor")
+    public Executor generationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentGenerationJobs);
+        executor.setMaxPoolSize(maxConcurrentGenerationJobs);
+        executor.setQueueCapacity(generationQueueCapacity);
+        executor.setThreadNamePrefix("Generator-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "exportJobExecutor")
+    public Executor exportJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentExportJobs);
+        executor.setMaxPoolSize(maxConcurrentExportJobs);
+        executor.setQueueCapacity(exportJobQueueCapacity);
+        executor.setThreadNamePrefix("ExportJob-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "exportStreamExecutor")
+    public ThreadPoolTaskExecutor exportStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(exportStreamThreads);
+        executor.setMaxPoolSize(exportStreamThreads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ExportStream-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    // Writers wait for their oldest block once a few are in flight, so the queue stays short; when it
+    // is full the writing thread deflates the block itself instead of adding threads. Once the pool
+    // is shut down blocks are rejected with an exception, which the writer reports as an IOException,
+    // rather than dropped silently (CallerRunsPolicy's behaviour) and waited for forever.
+    @Bean(name = "xlsxDeflateExecutor")
+    public Executor xlsxDeflateExecutor() {
+        int threads = xlsxDeflateThreads > 0 ? xlsxDeflateThreads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 4);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("Xlsx deflate executor is shut down");
+            }
+            task.run();
+        });
+        executor.setThreadNamePrefix("XlsxDeflate-");
+        executor.setDaemon(true);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
     @Override
     public Executor getAsyncExecutor() {
         return dataProcessingExecutor();
@@ -1,15 +1,54 @@
 package com.example.studentprocessor.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.lang.NonNull;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.Semaphore;
+
 @Configuration
 @EnableJpaRepositories(basePackages = "com.example.studentprocessor.repository")
 public class DatabaseConfig implements WebMvcConfigurer {
 
+    private final AsyncTaskExecutor exportStreamExecutor;
+
+    // Large exports streamed to slow clients can take a while
+    @Value("${app.export.stream-timeout-minutes:30}")
+    private long streamTimeoutMinutes = 30;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int maximumPoolSize = 10;
+
+    // Connections all partitioned exports may hold at once, snapshot leaders and workers together;
+    // 0 gives them half of the pool and leaves the rest to everything else
+    @Value("${app.export.partition-connections:0}")
+    private int partitionConnections = 0;
+
+    public DatabaseConfig(@Qualifier("exportStreamExecutor") AsyncTaskExecutor exportStreamExecutor) {
+        this.exportStreamExecutor = exportStreamExecutor;
+    }
+
+    // StreamingResponseBody exports run on their own pool instead of Spring's default SimpleAsyncTaskExecutor
+    @Override
+    public void configureAsyncSupport(@NonNull AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(exportStreamExecutor);
+        configurer.setDefaultTimeout(streamTimeoutMinutes * 60_000L);
+    }
+
+    // Shared by every partitioned export, so several at once can't drain the connection pool
+    @Bean(name = "partitionConnectionPermits")
+    public Semaphore partitionConnectionPermits() {
+        int permits = partitionConnections > 0 ? partitionConnections : maximumPoolSize / 2;
+        return new Semaphore(Math.max(permits, 0));
+    }
+
     @Override
     public void addCorsMappings(@NonNull CorsRegistry registry) {
         registry.addMapping("/api/**")
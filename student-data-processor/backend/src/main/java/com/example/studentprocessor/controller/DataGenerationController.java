@@ -1,9 +1,21 @@
 package com.example.studentprocessor.controller;
 
+import com.example.studentprocessor.service.BackgroundJob;
 import com.example.studentprocessor.service.DataGenerationService;
+import com.example.studentprocessor.service.GenerationJobService;
+import com.example.studentprocessor.service.SyntheticDataLoadService;
+import com.example.studentprocessor.service.WorkloadProfile;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/generate")
@@ -11,15 +23,25 @@ import org.springframework.web.bind.annotation.*;
 public class DataGenerationController {
 
     private final DataGenerationService dataGenerationService;
+    private final SyntheticDataLoadService syntheticDataLoadService;
+    private final GenerationJobService generationJobService;
     private static final int MAX_RECORDS = 2000000; // Safety limit for memory
+    private static final int MAX_LOAD_RECORDS = 50000000; // Rows go straight to the database, nothing is held in memory
 
     @Autowired
-    public DataGenerationController(DataGenerationService dataGenerationService) {
+    public DataGenerationController(DataGenerationService dataGenerationService,
+                                    SyntheticDataLoadService syntheticDataLoadService,
+                                    GenerationJobService generationJobService) {
         this.dataGenerationService = dataGenerationService;
+        this.syntheticDataLoadService = syntheticDataLoadService;
+        this.generationJobService = generationJobService;
     }
 
     @PostMapping
-    public ResponseEntity<String> generateData(@RequestParam int recordCount) {
+    public ResponseEntity<String> generateData(@RequestParam int recordCount,
+                                               @RequestParam(required = false) Long seed,
+                                               @RequestParam(defaultValue = "default") String profile,
+                                               @RequestParam(defaultValue = "xlsx") String format) {
         try {
             // Validate record count
             if (recordCount <= 0) {
@@ -31,6 +53,15 @@ public class DataGenerationController {
                     String.format("Record count cannot exceed %,d for memory safety", MAX_RECORDS));
             }
 
+            WorkloadProfile workloadProfile;
+            DataGenerationService.Format fileFormat;
+            try {
+                workloadProfile = WorkloadProfile.fromParam(profile);
+                fileFormat = DataGenerationService.Format.fromParam(format);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+
             // Check available memory before generation
             Runtime runtime = Runtime.getRuntime();
             long maxMemory = runtime.maxMemory();
@@ -42,15 +73,124 @@ public class DataGenerationController {
             System.out.printf("Max memory: %.1f MB%n", maxMemory / 1024.0 / 1024.0);
             System.out.printf("Available memory: %.1f MB%n", availableMemory / 1024.0 / 1024.0);
 
-            String fileName = dataGenerationService.generateStudentExcelFile(recordCount);
+            String fileName = dataGenerationService.generateStudentFile(recordCount, seed, workloadProfile, fileFormat, null);
 
             // Memory status after generation
             long usedMemoryAfter = runtime.totalMemory() - runtime.freeMemory();
             System.out.printf("Memory used after generation: %.1f MB%n", usedMemoryAfter / 1024.0 / 1024.0);
 
-            return ResponseEntity.ok("Excel file generated successfully: " + fileName);
+            String kind = fileFormat == DataGenerationService.Format.XLSX ? "Excel" : "CSV";
+            return ResponseEntity.ok(kind + " file generated successfully: " + fileName);
         } catch (Exception e) {
             return ResponseEntity.status(500).body("Error generating file: " + e.getMessage());
         }
     }
+
+    // Generates students and copies them straight into the database, for load testing
+    @PostMapping("/load")
+    public ResponseEntity<Map<String, Object>> generateAndLoad(@RequestParam int recordCount,
+                                                               @RequestParam(required = false) Long seed,
+                                                               @RequestParam(defaultValue = "default") String profile) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (recordCount <= 0 || recordCount > MAX_LOAD_RECORDS) {
+            response.put("success", false);
+            response.put("message", String.format("Record count must be between 1 and %,d", MAX_LOAD_RECORDS));
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            WorkloadProfile workloadProfile = WorkloadProfile.fromParam(profile);
+            response.putAll(syntheticDataLoadService.loadStudents(recordCount, seed, workloadProfile, null));
+            response.put("success", true);
+            response.put("message", String.format("Loaded %,d generated students into the database",
+                    (Long) response.get("recordsLoaded")));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error loading generated data: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    // Queue a generation and return immediately; poll or stream the job for progress
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitGenerationJob(@RequestParam int recordCount,
+                                                                   @RequestParam(required = false) Long seed,
+                                                                   @RequestParam(defaultValue = "excel") String target,
+                                                                   @RequestParam(defaultValue = "default") String profile,
+                                                                   @RequestParam(defaultValue = "xlsx") String format) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            GenerationJobService.Target jobTarget = GenerationJobService.Target.fromParam(target);
+            WorkloadProfile workloadProfile = WorkloadProfile.fromParam(profile);
+            DataGenerationService.Format fileFormat = DataGenerationService.Format.fromParam(format);
+            int maxRecords = jobTarget == GenerationJobService.Target.EXCEL ? MAX_RECORDS : MAX_LOAD_RECORDS;
+            if (recordCount <= 0 || recordCount > maxRecords) {
+                response.put("success", false);
+                response.put("message", String.format("Record count must be between 1 and %,d", maxRecords));
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            BackgroundJob job = generationJobService.submit(jobTarget, recordCount, seed, workloadProfile, fileFormat);
+
+            response.put("success", true);
+            response.put("jobId", job.getId());
+            response.put("statusUrl", "/api/generate/jobs/" + job.getId());
+            response.put("eventsUrl", "/api/generate/jobs/" + job.getId() + "/events");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+
+        } catch (RejectedExecutionException e) {
+            response.put("success", false);
+            response.put("message", "Too many generation jobs in progress. Please retry later.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .body(response);
+        }
+    }
+
+    // Available workload profiles for the profile parameter
+    @GetMapping("/profiles")
+    public ResponseEntity<Map<String, String>> getProfiles() {
+        return ResponseEntity.ok(WorkloadProfile.describeAll());
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getGenerationJob(@PathVariable String jobId) {
+        return generationJobService.getJob(jobId)
+                .map(job -> {
+                    Map<String, Object> status = job.toMap();
+                    if (job.getStatus() == BackgroundJob.Status.COMPLETED && job.getResultFileName() != null) {
+                        status.put("downloadUrl", "/api/reports/download/" + job.getResultFileName());
+                    }
+                    return ResponseEntity.ok(status);
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamGenerationJob(@PathVariable String jobId) {
+        return generationJobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(generationJobService.streamEvents(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelGenerationJob(@PathVariable String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        boolean cancelled = generationJobService.cancel(jobId);
+        response.put("success", cancelled);
+        response.put("message", cancelled ? "Cancellation requested" : "Job not found or already finished");
+        return cancelled ? ResponseEntity.ok(response) : ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
 }
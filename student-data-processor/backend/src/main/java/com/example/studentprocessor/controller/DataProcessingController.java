@@ -1,15 +1,27 @@
 package com.example.studentprocessor.controller;
 
 import com.example.studentprocessor.dto.ProcessingResult;
+import com.example.studentprocessor.service.BackgroundJob;
+import com.example.studentprocessor.service.ConversionJobService;
+import com.example.studentprocessor.service.ConversionOutputFormat;
 import com.example.studentprocessor.service.DataProcessingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/process")
@@ -17,14 +29,18 @@ import java.util.Map;
 public class DataProcessingController {
 
     private final DataProcessingService dataProcessingService;
+    private final ConversionJobService conversionJobService;
 
     @Autowired
-    public DataProcessingController(DataProcessingService dataProcessingService) {
+    public DataProcessingController(DataProcessingService dataProcessingService,
+                                    ConversionJobService conversionJobService) {
         this.dataProcessingService = dataProcessingService;
+        this.conversionJobService = conversionJobService;
     }
 
     @PostMapping
-    public ResponseEntity<Map<String, Object>> processExcelToCsv(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> processExcelToCsv(@RequestParam("file") MultipartFile file,
+                                                                 @RequestParam(value = "format", defaultValue = "csv") String format) {
         Map<String, Object> response = new HashMap<>();
 
         // Log memory status before processing
@@ -53,8 +69,17 @@ public class DataProcessingController {
                 return ResponseEntity.badRequest().body(response);
             }
 
+            ConversionOutputFormat outputFormat;
+            try {
+                outputFormat = ConversionOutputFormat.fromParam(format);
+            } catch (IllegalArgumentException e) {
+                response.put("success", false);
+                response.put("message", e.getMessage());
+                return ResponseEntity.badRequest().body(response);
+            }
+
             long startTime = System.currentTimeMillis();
-            ProcessingResult result = dataProcessingService.convertExcelToCsv(file);
+            ProcessingResult result = dataProcessingService.convertExcelToCsv(file, outputFormat);
             long endTime = System.currentTimeMillis();
 
             double processingTime = (endTime - startTime) / 1000.0;
@@ -66,9 +91,11 @@ public class DataProcessingController {
 
             response.put("success", true);
             response.put("message", "Excel file successfully converted to CSV with +10 score adjustment applied to all records");
-            response.put("csvFilePath", "C:/var/log/applications/API/dataprocessing/" + result.getCsvFileName());
+            response.put("csvFilePath", Paths.get(dataProcessingService.getOutputDirectory())
+                    .resolve(result.getCsvFileName()).toString());
             response.put("processingTime", String.format("%.2f seconds", processingTime));
             response.put("recordsProcessed", result.getRecordsProcessed());
+            response.put("format", outputFormat.getCode());
 
             return ResponseEntity.ok(response);
 
@@ -85,12 +112,90 @@ public class DataProcessingController {
         }
     }
 
+    // Queue a conversion and return immediately; poll the job for progress and download the result
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitConversionJob(@RequestParam("file") MultipartFile file,
+                                                                   @RequestParam(value = "format", defaultValue = "csv") String format) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (!isExcelFile(file)) {
+            response.put("success", false);
+            response.put("message", "Please upload an Excel file (.xlsx or .xls)");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            BackgroundJob job = conversionJobService.submit(file, ConversionOutputFormat.fromParam(format));
+
+            response.put("success", true);
+            response.put("jobId", job.getId());
+            response.put("statusUrl", "/api/process/jobs/" + job.getId());
+            response.put("downloadUrl", "/api/process/jobs/" + job.getId() + "/download");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+
+        } catch (RejectedExecutionException e) {
+            response.put("success", false);
+            response.put("message", "Too many conversions in progress. Please retry later.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Failed to queue conversion: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getConversionJob(@PathVariable String jobId) {
+        return conversionJobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(job.toMap()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelConversionJob(@PathVariable String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        boolean cancelled = conversionJobService.cancel(jobId);
+        response.put("success", cancelled);
+        response.put("message", cancelled ? "Cancellation requested" : "Job not found or already finished");
+        return cancelled ? ResponseEntity.ok(response) : ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    @GetMapping("/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadConversionResult(@PathVariable String jobId) {
+        Optional<BackgroundJob> job = conversionJobService.getJob(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.get().getStatus() != BackgroundJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        Path resultFile = conversionJobService.getResultFile(job.get());
+        if (!Files.exists(resultFile)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resultFile.getFileName() + "\"")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new FileSystemResource(resultFile));
+    }
+
     @GetMapping("/status")
     public ResponseEntity<Map<String, Object>> getProcessingStatus() {
         Map<String, Object> response = new HashMap<>();
         response.put("service", "Data Processing Service");
         response.put("status", "Available");
         response.put("supportedFormats", new String[]{"xlsx", "xls"});
+        response.put("outputFormats", new String[]{"csv", "csv.gz", "csv.zst", "parquet"});
         response.put("scoreAdjustment", "+10");
         return ResponseEntity.ok(response);
     }
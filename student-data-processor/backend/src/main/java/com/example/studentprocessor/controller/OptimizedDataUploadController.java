@@ -1,5 +1,6 @@
 package com.example.studentprocessor.controller;
 
+import com.example.studentprocessor.service.ExcelIngestService;
 import com.example.studentprocessor.service.OptimizedDataUploadService;
 import com.example.studentprocessor.service.UltraHighPerformanceService;
 import com.opencsv.exceptions.CsvException;
@@ -20,12 +21,15 @@ public class OptimizedDataUploadController {
 
     private final OptimizedDataUploadService optimizedDataUploadService;
     private final UltraHighPerformanceService ultraHighPerformanceService;
+    private final ExcelIngestService excelIngestService;
 
     @Autowired
     public OptimizedDataUploadController(OptimizedDataUploadService optimizedDataUploadService,
-                                       UltraHighPerformanceService ultraHighPerformanceService) {
+                                       UltraHighPerformanceService ultraHighPerformanceService,
+                                       ExcelIngestService excelIngestService) {
         this.optimizedDataUploadService = optimizedDataUploadService;
         this.ultraHighPerformanceService = ultraHighPerformanceService;
+        this.excelIngestService = excelIngestService;
     }
 
     @PostMapping("/csv/ultra-fast")
@@ -67,6 +71,56 @@ public class OptimizedDataUploadController {
         }
     }
 
+    // Loads an .xlsx or .xls workbook straight into the database, without the intermediate CSV
+    @PostMapping("/excel/direct")
+    public ResponseEntity<Map<String, Object>> uploadExcelDirect(@RequestParam("file") MultipartFile file) {
+        Map<String, Object> response = new HashMap<>();
+
+        String filename = file.getOriginalFilename();
+        if (filename == null || !(filename.toLowerCase().endsWith(".xlsx") || filename.toLowerCase().endsWith(".xls"))) {
+            response.put("success", false);
+            response.put("message", "Please upload an Excel file (.xlsx or .xls)");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            System.out.println("📥 DIRECT EXCEL UPLOAD: " + filename +
+                             " (" + String.format("%.2f MB", file.getSize() / (1024.0 * 1024.0)) + ")");
+
+            OptimizedDataUploadService.UploadResult result = excelIngestService.ingestExcel(file);
+
+            response.put("success", true);
+            response.put("totalRecords", result.getTotalRecords());
+            response.put("newRecords", result.getNewRecords());
+            response.put("skippedRecords", result.getSkippedRecords());
+            response.put("processingTime", result.getProcessingTime());
+            response.put("verificationMessage", result.getVerificationMessage());
+            response.put("message", "Excel file loaded directly into the database!");
+
+            double recordsPerSecond = result.getTotalRecords() / Math.max(result.getProcessingTime() / 1000.0, 0.001);
+            response.put("recordsPerSecond", Math.round(recordsPerSecond));
+
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+
+        } catch (IOException e) {
+            System.err.println("❌ IO Error during direct Excel upload: " + e.getMessage());
+            response.put("success", false);
+            response.put("message", "IO Error: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+
+        } catch (Exception e) {
+            System.err.println("❌ Error during direct Excel upload: " + e.getMessage());
+            response.put("success", false);
+            response.put("message", "Processing error: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     @PostMapping("/csv/optimized")
     public ResponseEntity<Map<String, Object>> uploadCsvFileOptimized(@RequestParam("file") MultipartFile file) {
         Map<String, Object> response = new HashMap<>();
@@ -131,6 +185,13 @@ public class OptimizedDataUploadController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/progress/excel-direct")
+    public ResponseEntity<Map<String, Object>> getExcelDirectProgress() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("progress", excelIngestService.getProgress());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/cancel")
     @Transactional
     public ResponseEntity<Map<String, Object>> cancelUpload() {
@@ -139,19 +200,22 @@ public class OptimizedDataUploadController {
         // Get progress before cancellation
         int optimizedProgress = optimizedDataUploadService.getProgress();
         int ultraProgress = ultraHighPerformanceService.getProgress();
+        int excelProgress = excelIngestService.getProgress();
 
         // Cancel the uploads
         optimizedDataUploadService.cancelUpload();
         ultraHighPerformanceService.cancelUpload();
+        excelIngestService.cancelIngest();
 
         response.put("success", true);
         response.put("optimizedProgress", optimizedProgress);
         response.put("ultraProgress", ultraProgress);
+        response.put("excelProgress", excelProgress);
         response.put("message", "Upload cancelled. " +
-                   Math.max(optimizedProgress, ultraProgress) + "% of data has been saved to database.");
+                   Math.max(Math.max(optimizedProgress, ultraProgress), excelProgress) + "% of data has been saved to database.");
 
         System.out.println("🛑 Upload cancelled by user request. Progress was: Optimized=" +
-                         optimizedProgress + "%, Ultra=" + ultraProgress + "%");
+                         optimizedProgress + "%, Ultra=" + ultraProgress + "%, Excel=" + excelProgress + "%");
 
         return ResponseEntity.ok(response);
     }
@@ -1,21 +1,27 @@
 package com.example.studentprocessor.controller;
 
 import com.example.studentprocessor.entity.Student;
-import com.example.studentprocessor.repository.StudentRepository;
+import com.example.studentprocessor.service.BackgroundJob;
+import com.example.studentprocessor.service.ExportJobService;
 import com.example.studentprocessor.service.ReportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -23,12 +29,15 @@ import java.util.Map;
 public class ReportController {
 
     private final ReportService reportService;
-    private final StudentRepository studentRepository;
+    private final ExportJobService exportJobService;
+    private final FileDownloadHandler fileDownloadHandler;
 
     @Autowired
-    public ReportController(ReportService reportService, StudentRepository studentRepository) {
+    public ReportController(ReportService reportService, ExportJobService exportJobService,
+                            FileDownloadHandler fileDownloadHandler) {
         this.reportService = reportService;
-        this.studentRepository = studentRepository;
+        this.exportJobService = exportJobService;
+        this.fileDownloadHandler = fileDownloadHandler;
     }
 
     // 1. Pagination
@@ -81,20 +90,22 @@ public class ReportController {
         }
     }
 
+    // partitions > 1 reads large exports as that many student_id ranges in parallel
     @GetMapping("/export/excel")
     public ResponseEntity<Map<String, Object>> exportToExcel(
             @RequestParam(required = false) Long studentId,
-            @RequestParam(required = false) String className) {
+            @RequestParam(required = false) String className,
+            @RequestParam(defaultValue = "1") int partitions) {
 
         Map<String, Object> response = new HashMap<>();
 
         try {
-            String fileName = reportService.exportToExcel(studentId, className);
+            String fileName = reportService.exportToExcel(studentId, className, partitions);
 
             response.put("success", true);
             response.put("message", "Excel report generated successfully");
             response.put("fileName", fileName);
-            response.put("filePath", "C:/var/log/applications/API/dataprocessing/" + fileName);
+            response.put("filePath", reportService.getOutputPath() + fileName);
             response.put("format", "Excel");
 
             return ResponseEntity.ok(response);
@@ -108,20 +119,22 @@ public class ReportController {
         }
     }
 
+    // partitions > 1 reads large exports as that many student_id ranges in parallel
     @GetMapping("/export/csv")
     public ResponseEntity<Map<String, Object>> exportToCsv(
             @RequestParam(required = false) Long studentId,
-            @RequestParam(required = false) String className) {
+            @RequestParam(required = false) String className,
+            @RequestParam(defaultValue = "1") int partitions) {
 
         Map<String, Object> response = new HashMap<>();
 
         try {
-            String fileName = reportService.exportToCsv(studentId, className);
+            String fileName = reportService.exportToCsv(studentId, className, partitions);
 
             response.put("success", true);
             response.put("message", "CSV report generated successfully");
             response.put("fileName", fileName);
-            response.put("filePath", "C:/var/log/applications/API/dataprocessing/" + fileName);
+            response.put("filePath", reportService.getOutputPath() + fileName);
             response.put("format", "CSV");
 
             return ResponseEntity.ok(response);
@@ -148,7 +161,7 @@ public class ReportController {
             response.put("success", true);
             response.put("message", "PDF report generated successfully");
             response.put("fileName", fileName);
-            response.put("filePath", "C:/var/log/applications/API/dataprocessing/" + fileName);
+            response.put("filePath", reportService.getOutputPath() + fileName);
             response.put("format", "PDF");
 
             return ResponseEntity.ok(response);
@@ -162,39 +175,111 @@ public class ReportController {
         }
     }
 
-    @GetMapping("/download/{fileName}")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable String fileName) {
+    // Queue an export and return immediately; identical requests share the running or finished job
+    @PostMapping("/export/{format}/jobs")
+    public ResponseEntity<Map<String, Object>> submitExportJob(
+            @PathVariable String format,
+            @RequestParam(required = false) Long studentId,
+            @RequestParam(required = false) String className,
+            @RequestParam(defaultValue = "1") int partitions) {
+
+        Map<String, Object> response = new HashMap<>();
+
         try {
-            // Build the full file path
-            String filePath = "C:/var/log/applications/API/dataprocessing/" + fileName;
-            Path path = Paths.get(filePath);
+            ReportService.ExportFormat exportFormat = ReportService.ExportFormat.fromParam(format);
+            ExportJobService.ExportSubmission submission =
+                    exportJobService.submit(exportFormat, studentId, className, partitions);
+            BackgroundJob job = submission.getJob();
 
-            // Check if file exists
-            if (!Files.exists(path)) {
-                return ResponseEntity.notFound().build();
+            response.put("success", true);
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus().name());
+            response.put("reused", submission.isReused());
+            response.put("statusUrl", "/api/reports/export/jobs/" + job.getId());
+            if (job.getStatus() == BackgroundJob.Status.COMPLETED) {
+                response.put("downloadUrl", "/api/reports/download/" + job.getResultFileName());
             }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
 
-            // Read file content
-            byte[] content = Files.readAllBytes(path);
-
-            // Determine content type based on file extension
-            String contentType = "application/octet-stream";
-            if (fileName.endsWith(".xlsx")) {
-                contentType = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
-            } else if (fileName.endsWith(".pdf")) {
-                contentType = "application/pdf";
-            } else if (fileName.endsWith(".csv")) {
-                contentType = "text/csv";
-            }
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                    .header(HttpHeaders.CONTENT_TYPE, contentType)
-                    .body(content);
+        } catch (RejectedExecutionException e) {
+            response.put("success", false);
+            response.put("message", "Too many export jobs in progress. Please retry later.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(response);
+        }
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    @GetMapping("/export/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getExportJob(@PathVariable String jobId) {
+        return exportJobService.getJob(jobId)
+                .map(job -> {
+                    Map<String, Object> status = job.toMap();
+                    if (job.getStatus() == BackgroundJob.Status.COMPLETED && job.getResultFileName() != null) {
+                        status.put("downloadUrl", "/api/reports/download/" + job.getResultFileName());
+                    }
+                    return ResponseEntity.ok(status);
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams a report straight into the response while its rows are read, without writing a
+     * file first; the first bytes go out as soon as the query returns rows. gzip=true compresses
+     * the response (Content-Encoding: gzip), which mainly pays off for CSV. partitions works as
+     * for the file exports.
+     */
+    @GetMapping("/export/{format}/stream")
+    public ResponseEntity<StreamingResponseBody> streamExport(
+            @PathVariable String format,
+            @RequestParam(required = false) Long studentId,
+            @RequestParam(required = false) String className,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(defaultValue = "1") int partitions) {
+
+        ReportService.ExportFormat exportFormat;
+        try {
+            exportFormat = ReportService.ExportFormat.fromParam(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String fileName = reportService.newReportFileName(exportFormat);
+        StreamingResponseBody body = out -> {
+            long startTime = System.currentTimeMillis();
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            try {
+                reportService.writeReport(exportFormat, target, studentId, className, partitions);
+                if (target instanceof GZIPOutputStream) {
+                    ((GZIPOutputStream) target).finish();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Streaming export " + fileName + " failed: " + e.getMessage());
+                throw e;
+            }
+            System.out.printf("Streamed export %s in %.2f seconds%n", fileName,
+                    (System.currentTimeMillis() - startTime) / 1000.0);
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
         }
+        return response.body(body);
+    }
+
+    // Sends a stored export with sendfile; supports Range requests and ETag / Last-Modified revalidation
+    @GetMapping("/download/{fileName}")
+    public void downloadFile(@PathVariable String fileName, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        fileDownloadHandler.serve(reportService.getOutputPath(), fileName, request, response);
     }
 
     @GetMapping("/status")
@@ -256,6 +341,36 @@ public class ReportController {
         }
     }
 
+    // Get average score and pass rate per class
+    @GetMapping("/class-averages")
+    public ResponseEntity<?> getClassAverages() {
+        try {
+            return ResponseEntity.ok(reportService.getClassAverages());
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to fetch class averages: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    // Get the rank and percentile of a score, overall or within a class
+    @GetMapping("/score-rank")
+    public ResponseEntity<Map<String, Object>> getScoreRank(
+            @RequestParam int score,
+            @RequestParam(required = false) String className) {
+        try {
+            return ResponseEntity.ok(reportService.getScoreRank(score, className));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to fetch score rank: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
     // Get top performers
     @GetMapping("/top-performers")
     public ResponseEntity<List<Student>> getTopPerformers(
@@ -283,8 +398,7 @@ public class ReportController {
     @DeleteMapping("/clear-data")
     public ResponseEntity<Map<String, Object>> clearAllData() {
         try {
-            long recordsDeleted = studentRepository.count();
-            studentRepository.deleteAll();
+            long recordsDeleted = reportService.clearAllData();
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -11,6 +11,7 @@ import java.time.LocalDate;
        indexes = {
            @Index(name = "idx_student_id", columnList = "student_id"),
            @Index(name = "idx_class_name", columnList = "class_name"),
+           @Index(name = "idx_class_name_student_id", columnList = "class_name, student_id"),
            @Index(name = "idx_score", columnList = "score")
        })
 public class Student {
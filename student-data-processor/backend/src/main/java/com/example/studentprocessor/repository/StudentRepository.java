@@ -1,6 +1,7 @@
 package com.example.studentprocessor.repository;
 
 import com.example.studentprocessor.entity.Student;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -39,11 +40,21 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
                           @Param("className") String className,
                           @Param("dob") LocalDate dob);
 
+    // Deletes every student in one statement and returns how many rows it removed
+    @Modifying
+    @Query("DELETE FROM Student s")
+    int deleteAllStudents();
+
     @Query("SELECT s FROM Student s ORDER BY s.id DESC")
     List<Student> findTop10ByOrderByIdDesc();
 
     Page<Student> findByClassName(String className, Pageable pageable);
 
+    // Keyset batches for exports: the next students after a given student ID, without a count query
+    List<Student> findByStudentIdGreaterThanOrderByStudentIdAsc(Long studentId, Limit limit);
+
+    List<Student> findByClassNameAndStudentIdGreaterThanOrderByStudentIdAsc(String className, Long studentId, Limit limit);
+
     @Query("SELECT DISTINCT s.className FROM Student s ORDER BY s.className")
     List<String> findDistinctClassNames();
 
@@ -120,18 +131,9 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
             @Param("className") String className,
             Pageable pageable);
 
-    @Query("SELECT AVG(s.score) FROM Student s")
-    Double findAverageScore();
-
-    @Query("SELECT MAX(s.score) FROM Student s")
-    Integer findMaxScore();
-
-    @Query("SELECT MIN(s.score) FROM Student s")
-    Integer findMinScore();
-
-    Long countByScoreGreaterThanEqual(Integer score);
-
-    Long countByScoreBetween(Integer minScore, Integer maxScore);
+    // Students per class and score, read once to build the in-memory score histograms
+    @Query("SELECT s.className, s.score, COUNT(s) FROM Student s GROUP BY s.className, s.score")
+    List<Object[]> countStudentsByClassAndScore();
 
     // Get top performers (highest scores)
     @Query("SELECT s FROM Student s ORDER BY s.score DESC")
@@ -0,0 +1,153 @@
+package com.example.studentprocessor.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State of a long-running job executed off the request thread. Counters are updated by the
+ * worker and read by status requests, so every mutable field is volatile or atomic.
+ */
+public class BackgroundJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String type;
+    private final long submittedAt = System.currentTimeMillis();
+    private final AtomicLong processed = new AtomicLong();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile long total = -1; // -1 while unknown
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String resultFileName;
+    private volatile String error;
+    private volatile boolean cancelRequested;
+
+    public BackgroundJob(String type) {
+        this.type = type;
+    }
+
+    public void markRunning() {
+        startedAt = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    public void markCompleted(String resultFileName) {
+        this.resultFileName = resultFileName;
+        finish(Status.COMPLETED);
+    }
+
+    public void markFailed(String error) {
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    public void markCancelled() {
+        finish(Status.CANCELLED);
+    }
+
+    private void finish(Status finalStatus) {
+        finishedAt = System.currentTimeMillis();
+        status = finalStatus;
+    }
+
+    public void addProcessed(long count) {
+        processed.addAndGet(count);
+    }
+
+    public void setProcessed(long count) {
+        processed.set(count);
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    // Called by workers between units of work: records their progress and stops them once cancelled
+    public void checkpoint(long processedSinceLastCheckpoint) {
+        processed.addAndGet(processedSinceLastCheckpoint);
+        if (cancelRequested) {
+            throw new CancellationException("Job " + id + " cancelled");
+        }
+    }
+
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getResultFileName() {
+        return resultFileName;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        long done = processed.get();
+        long knownTotal = total;
+
+        map.put("jobId", id);
+        map.put("type", type);
+        map.put("status", status.name());
+        map.put("processed", done);
+        map.put("total", knownTotal >= 0 ? knownTotal : null);
+        if (status == Status.COMPLETED) {
+            map.put("progress", 100);
+        } else if (knownTotal > 0) {
+            map.put("progress", (int) Math.min(99, done * 100 / knownTotal));
+        } else {
+            map.put("progress", 0);
+        }
+
+        if (startedAt > 0) {
+            long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+            double seconds = Math.max((end - startedAt) / 1000.0, 0.001);
+            map.put("elapsedSeconds", Math.round(seconds * 100.0) / 100.0);
+            map.put("rowsPerSecond", Math.round(done / seconds));
+        }
+        map.put("queuedMillis", (startedAt > 0 ? startedAt : System.currentTimeMillis()) - submittedAt);
+        map.put("resultFileName", resultFileName);
+        map.put("error", error);
+        return map;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.studentprocessor.service;
+
+import com.example.studentprocessor.entity.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of students per class and score. Scores are 0-100 (checked on Student and by the
+ * table's check constraint), so each class is an array of 101 LongAdders that any number of
+ * threads can count into without locking. Used for the live per-class histograms and for the
+ * rows a single write added.
+ */
+public class ClassScoreCounts {
+
+    public static final int MAX_SCORE = 100;
+
+    private final Map<String, LongAdder[]> counters = new ConcurrentHashMap<>();
+
+    public void add(String className, int score) {
+        add(className, score, 1);
+    }
+
+    public void add(String className, int score, long count) {
+        if (score < 0 || score > MAX_SCORE) {
+            // Rejected by the database, so it can't be a stored row
+            return;
+        }
+        counters.computeIfAbsent(className, name -> newCounters())[score].add(count);
+    }
+
+    public void add(Student student) {
+        add(student.getClassName(), student.getScore());
+    }
+
+    public void addAll(Iterable<Student> students) {
+        for (Student student : students) {
+            add(student);
+        }
+    }
+
+    public void addAll(ClassScoreCounts other) {
+        other.counters.forEach((className, otherCounters) -> {
+            LongAdder[] target = counters.computeIfAbsent(className, name -> newCounters());
+            for (int score = 0; score <= MAX_SCORE; score++) {
+                long count = otherCounters[score].sum();
+                if (count != 0) {
+                    target[score].add(count);
+                }
+            }
+        });
+    }
+
+    List<String> getClassNames() {
+        List<String> classNames = new ArrayList<>(counters.keySet());
+        classNames.sort(null);
+        return classNames;
+    }
+
+    // Counts indexed by score for one class, or summed over all classes when className is null
+    long[] getCounts(String className) {
+        long[] counts = new long[MAX_SCORE + 1];
+        if (className != null) {
+            LongAdder[] classCounters = counters.get(className);
+            if (classCounters != null) {
+                addTo(counts, classCounters);
+            }
+        } else {
+            counters.values().forEach(classCounters -> addTo(counts, classCounters));
+        }
+        return counts;
+    }
+
+    private static void addTo(long[] counts, LongAdder[] classCounters) {
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            counts[score] += classCounters[score].sum();
+        }
+    }
+
+    private static LongAdder[] newCounters() {
+        LongAdder[] classCounters = new LongAdder[MAX_SCORE + 1];
+        for (int score = 0; score <= MAX_SCORE; score++) {
+            classCounters[score] = new LongAdder();
+        }
+        return classCounters;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.studentprocessor.service;
+
+import com.example.studentprocessor.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory score histograms per class, so the dashboard statistics never touch the database.
+ *
+ * The counts are read from the table once at startup (or on first use if that failed) and then
+ * kept current from StudentDataChangedEvent: inserted rows are added once their transaction
+ * commits, and a clear or a change without row counts makes the next read reload from the table.
+ * A clear isn't taken to mean an empty table: an upload committing while the DELETE runs can keep
+ * its rows, and its insert event may be handled before the clear's.
+ *
+ * Changes are applied under one lock, in the order their events arrive. A load only caches what it
+ * read if no change was applied while it was reading; otherwise the read is used once and the next
+ * call reads again.
+ */
+@Service
+public class ClassScoreIndex {
+
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final StudentRepository studentRepository;
+    // Guards changes to counts; the table is read outside it
+    private final Object changeLock = new Object();
+    // Changes applied since startup; a load retries if one arrived while the table was read
+    private final AtomicLong changes = new AtomicLong();
+    private volatile ClassScoreCounts counts; // null until loaded
+
+    @Autowired
+    public ClassScoreIndex(StudentRepository studentRepository) {
+        this.studentRepository = studentRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        try {
+            current();
+        } catch (RuntimeException e) {
+            System.err.println("Score histograms not loaded at startup, retrying on first use: " + e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentDataChanged(StudentDataChangedEvent event) {
+        synchronized (changeLock) {
+            if (!event.isCleared() && event.getInserted() != null) {
+                // Before the first load there is nothing to add to; a load running now sees the
+                // change counter move and won't cache its read
+                if (counts != null) {
+                    counts.addAll(event.getInserted());
+                }
+            } else {
+                counts = null;
+            }
+            changes.incrementAndGet();
+        }
+    }
+
+    // Histogram of one class, or of all students when className is null
+    public ScoreHistogram getHistogram(String className) {
+        return ScoreHistogram.ofCounts(current().getCounts(className));
+    }
+
+    // Histogram of every class, by class name
+    public Map<String, ScoreHistogram> getClassHistograms() {
+        ClassScoreCounts current = current();
+        Map<String, ScoreHistogram> histograms = new LinkedHashMap<>();
+        for (String className : current.getClassNames()) {
+            histograms.put(className, ScoreHistogram.ofCounts(current.getCounts(className)));
+        }
+        return histograms;
+    }
+
+    private ClassScoreCounts current() {
+        ClassScoreCounts loaded = counts;
+        return loaded != null ? loaded : load();
+    }
+
+    // Synchronized so concurrent first reads share one query
+    private synchronized ClassScoreCounts load() {
+        ClassScoreCounts loaded = counts;
+        if (loaded != null) {
+            return loaded;
+        }
+        long startTime = System.currentTimeMillis();
+        ClassScoreCounts fresh = null;
+        for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+            long changesBefore = changes.get();
+            fresh = readCounts();
+            synchronized (changeLock) {
+                // A change applied while reading may or may not be in what was read, so read again
+                if (changes.get() == changesBefore) {
+                    counts = fresh;
+                    System.out.printf("Loaded score histograms for %d classes in %d ms%n",
+                            fresh.getClassNames().size(), System.currentTimeMillis() - startTime);
+                    return fresh;
+                }
+            }
+        }
+        System.out.println("Score histograms still changing after " + MAX_LOAD_ATTEMPTS
+                + " reads, serving the last read without caching it");
+        return fresh;
+    }
+
+    private ClassScoreCounts readCounts() {
+        ClassScoreCounts fresh = new ClassScoreCounts();
+        List<Object[]> rows = studentRepository.countStudentsByClassAndScore();
+        for (Object[] row : rows) {
+            fresh.add((String) row[0], ((Number) row[1]).intValue(), ((Number) row[2]).longValue());
+        }
+        return fresh;
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.studentprocessor.service;
+
+import java.util.*;
+
+/**
+ * Declarative description of the output columns of a sheet conversion: for every output column
+ * the header names it can be found under, the sheet column to fall back to when no header
+ * matches, and the transform applied to its values.
+ *
+ * A mapping is compiled once per sheet against the actual header row into a flat array of cell
+ * handlers indexed by sheet column, so extra or reordered columns need no per-cell checks.
+ */
+public class ColumnMapping {
+
+    // Typed value transform for a single column
+    @FunctionalInterface
+    public interface ValueTransform {
+        String apply(String raw);
+    }
+
+    // Writes one sheet cell into its slot of the output row
+    @FunctionalInterface
+    interface CellHandler {
+        void accept(String value, String[] row);
+    }
+
+    private static final CellHandler IGNORE = (value, row) -> { };
+
+    private final List<Column> columns = new ArrayList<>();
+
+    /**
+     * The student layout (studentId, firstName, lastName, DOB, class, score) with the given
+     * adjustment added to every score.
+     */
+    public static ColumnMapping students(int scoreAdjustment) {
+        return new ColumnMapping()
+                .column("studentId", "A", wholeNumber(), "studentid", "id", "student_id", "student id")
+                .column("firstName", "B", text(), "firstname", "first_name", "first name", "given name")
+                .column("lastName", "C", text(), "lastname", "last_name", "last name", "surname")
+                .column("DOB", "D", text(), "dob", "dateofbirth", "date of birth", "birthdate")
+                .column("class", "E", text(), "class", "classname", "class_name", "class name")
+                .column("score", "F", wholeNumberPlus(scoreAdjustment), "score", "marks", "mark");
+    }
+
+    public ColumnMapping column(String name, String defaultColumn, ValueTransform transform, String... headerAliases) {
+        Set<String> aliases = new HashSet<>();
+        aliases.add(normalize(name));
+        for (String alias : headerAliases) {
+            aliases.add(normalize(alias));
+        }
+        columns.add(new Column(name, columnIndex(defaultColumn), transform, aliases));
+        return this;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    public String[] outputHeaders() {
+        String[] headers = new String[columns.size()];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = columns.get(i).name;
+        }
+        return headers;
+    }
+
+    /**
+     * Binds every output column to a sheet column: by header name first, otherwise by its
+     * default position when that sheet column isn't claimed by another output column.
+     *
+     * @param headerCells header row values keyed by sheet column index
+     */
+    public Compiled compile(Map<Integer, String> headerCells) {
+        Map<String, Integer> headerPositions = new HashMap<>();
+        for (Map.Entry<Integer, String> cell : headerCells.entrySet()) {
+            headerPositions.putIfAbsent(normalize(cell.getValue()), cell.getKey());
+        }
+
+        int[] sourceColumns = new int[columns.size()];
+        Set<Integer> claimed = new HashSet<>();
+        for (int i = 0; i < columns.size(); i++) {
+            sourceColumns[i] = -1;
+            for (String alias : columns.get(i).headerAliases) {
+                Integer position = headerPositions.get(alias);
+                if (position != null && claimed.add(position)) {
+                    sourceColumns[i] = position;
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            int fallback = columns.get(i).defaultColumn;
+            if (sourceColumns[i] < 0 && fallback >= 0 && claimed.add(fallback)) {
+                sourceColumns[i] = fallback;
+            }
+        }
+
+        int width = 0;
+        for (int source : sourceColumns) {
+            width = Math.max(width, source + 1);
+        }
+
+        CellHandler[] handlers = new CellHandler[width];
+        Arrays.fill(handlers, IGNORE);
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (sourceColumns[i] < 0) {
+                description.append(columns.get(i).name).append("=<missing> ");
+                continue;
+            }
+            final int slot = i;
+            final ValueTransform transform = columns.get(i).transform;
+            handlers[sourceColumns[i]] = (value, row) -> row[slot] = transform.apply(value);
+            description.append(columns.get(i).name).append('=').append(columnName(sourceColumns[i])).append(' ');
+        }
+
+        return new Compiled(handlers, columns.size(), matchedByName(sourceColumns, headerPositions), description.toString().trim());
+    }
+
+    private int matchedByName(int[] sourceColumns, Map<String, Integer> headerPositions) {
+        int matched = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            for (String alias : columns.get(i).headerAliases) {
+                if (Integer.valueOf(sourceColumns[i]).equals(headerPositions.get(alias))) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+
+    // Compiled mapping: the per-cell hot path is an array index plus one call
+    static class Compiled {
+        private final CellHandler[] handlers;
+        private final int outputWidth;
+        private final int matchedByName;
+        private final String description;
+
+        Compiled(CellHandler[] handlers, int outputWidth, int matchedByName, String description) {
+            this.handlers = handlers;
+            this.outputWidth = outputWidth;
+            this.matchedByName = matchedByName;
+            this.description = description;
+        }
+
+        void accept(int column, String value, String[] row) {
+            if (column >= 0 && column < handlers.length) {
+                handlers[column].accept(value, row);
+            }
+        }
+
+        int getOutputWidth() {
+            return outputWidth;
+        }
+
+        // Output columns whose sheet column was found through its header name
+        int getMatchedByName() {
+            return matchedByName;
+        }
+
+        String getDescription() {
+            return description;
+        }
+    }
+
+    // Value kept as read
+    public static ValueTransform text() {
+        return raw -> raw;
+    }
+
+    // Numbers written by Excel as doubles ("12.0") become whole numbers; non-numeric values are kept
+    public static ValueTransform wholeNumber() {
+        return raw -> {
+            try {
+                return String.valueOf((long) Double.parseDouble(raw.trim()));
+            } catch (NumberFormatException e) {
+                return raw;
+            }
+        };
+    }
+
+    // Whole number plus a fixed adjustment, e.g. the score bonus; non-numeric values are kept
+    public static ValueTransform wholeNumberPlus(int adjustment) {
+        return raw -> {
+            try {
+                return String.valueOf((int) Double.parseDouble(raw.trim()) + adjustment);
+            } catch (NumberFormatException e) {
+                return raw;
+            }
+        };
+    }
+
+    /**
+     * Converts the letters of a cell reference ("A1", "AB12", "XFD3") to a zero-based column index.
+     * Returns -1 if the reference has no column letters.
+     */
+    public static int columnIndex(String cellReference) {
+        if (cellReference == null) return -1;
+
+        int index = 0;
+        int letters = 0;
+        for (int i = 0; i < cellReference.length(); i++) {
+            char c = cellReference.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                index = index * 26 + (c - 'A' + 1);
+            } else if (c >= 'a' && c <= 'z') {
+                index = index * 26 + (c - 'a' + 1);
+            } else {
+                break;
+            }
+            letters++;
+        }
+        return letters == 0 ? -1 : index - 1;
+    }
+
+    static String columnName(int columnIndex) {
+        StringBuilder name = new StringBuilder();
+        for (int n = columnIndex + 1; n > 0; n = (n - 1) / 26) {
+            name.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return name.toString();
+    }
+
+    // Header names compare case-insensitively, ignoring spaces, underscores and dashes
+    private static String normalize(String header) {
+        if (header == null) return "";
+        StringBuilder normalized = new StringBuilder(header.length());
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (!Character.isWhitespace(c) && c != '_' && c != '-') {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static class Column {
+        final String name;
+        final int defaultColumn;
+        final ValueTransform transform;
+        final Set<String> headerAliases;
+
+        Column(String name, int defaultColumn, ValueTransform transform, Set<String> headerAliases) {
+            this.name = name;
+            this.defaultColumn = defaultColumn;
+            this.transform = transform;
+            this.headerAliases = headerAliases;
+        }
+    }
+}
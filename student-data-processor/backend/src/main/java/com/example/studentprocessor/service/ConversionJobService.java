@@ -0,0 +1,143 @@
+package com.example.studentprocessor.service;
+
+import com.example.studentprocessor.dto.ProcessingResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs Excel to CSV conversions as background jobs on the dataProcessingExecutor, so the
+ * request thread only has to store the upload. The executor's bounded queue rejects new jobs
+ * when saturated instead of letting them pile up.
+ */
+@Service
+public class ConversionJobService {
+
+    private final DataProcessingService dataProcessingService;
+    private final StreamingExcelToCsvService streamingService;
+    private final Executor executor;
+    private final Map<String, BackgroundJob> jobs = new ConcurrentHashMap<>();
+
+    // Finished jobs are forgotten after this long; their output files stay on disk
+    @Value("${app.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Autowired
+    public ConversionJobService(DataProcessingService dataProcessingService,
+                                StreamingExcelToCsvService streamingService,
+                                @Qualifier("dataProcessingExecutor") Executor executor) {
+        this.dataProcessingService = dataProcessingService;
+        this.streamingService = streamingService;
+        this.executor = executor;
+    }
+
+    /**
+     * Stores the upload and queues the conversion.
+     *
+     * @throws RejectedExecutionException when the executor queue is full
+     */
+    public BackgroundJob submit(MultipartFile file, ConversionOutputFormat format) throws IOException {
+        purgeExpiredJobs();
+
+        DataProcessingService.SavedUpload savedFile = dataProcessingService.saveUpload(file);
+        BackgroundJob job = new BackgroundJob("conversion");
+        jobs.put(job.getId(), job);
+
+        try {
+            executor.execute(() -> run(job, savedFile, format));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            Files.deleteIfExists(savedFile.getPath());
+            System.err.println("Conversion rejected, executor saturated: " + file.getOriginalFilename());
+            throw e;
+        }
+
+        System.out.println("Queued conversion job " + job.getId() + " for " + file.getOriginalFilename());
+        return job;
+    }
+
+    public Optional<BackgroundJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public boolean cancel(String jobId) {
+        BackgroundJob job = jobs.get(jobId);
+        if (job == null || job.isFinished()) {
+            return false;
+        }
+        job.requestCancel();
+        return true;
+    }
+
+    public Path getResultFile(BackgroundJob job) {
+        return Paths.get(streamingService.getOutputDirectory()).resolve(job.getResultFileName());
+    }
+
+    private void run(BackgroundJob job, DataProcessingService.SavedUpload savedFile, ConversionOutputFormat format) {
+        if (job.isCancelRequested()) {
+            deleteQuietly(savedFile.getPath());
+            job.markCancelled();
+            return;
+        }
+
+        job.markRunning();
+        System.out.println("Conversion job " + job.getId() + " started on " + Thread.currentThread().getName());
+
+        StreamingExcelToCsvService.RowListener progress = new StreamingExcelToCsvService.RowListener() {
+            @Override
+            public void onRow(String[] values) {
+                if (job.isCancelRequested()) {
+                    throw new CancellationException("Conversion job " + job.getId() + " cancelled");
+                }
+                job.addProcessed(1);
+            }
+
+            @Override
+            public void onRowCountEstimate(long rows) {
+                job.setTotal(rows);
+            }
+        };
+
+        try {
+            ProcessingResult result = dataProcessingService.convertSavedFile(savedFile, format, progress);
+            job.setProcessed(result.getRecordsProcessed());
+            job.setTotal(result.getRecordsProcessed());
+            job.markCompleted(result.getCsvFileName());
+            System.out.println("Conversion job " + job.getId() + " completed: " + result.getCsvFileName());
+        } catch (Exception e) {
+            if (job.isCancelRequested()) {
+                job.markCancelled();
+                System.out.println("Conversion job " + job.getId() + " cancelled");
+            } else {
+                job.markFailed(e.getMessage());
+                System.err.println("Conversion job " + job.getId() + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMinutes * 60_000L;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Failed to clean up temp file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.studentprocessor.service;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output formats the Excel converter can write. Compressed formats stream the CSV through the
+ * compressor, so the uncompressed file never reaches disk. Parquet is columnar and compresses
+ * its own pages (see ParquetConversionSink).
+ */
+public enum ConversionOutputFormat {
+
+    CSV("csv", ".csv"),
+    CSV_GZIP("csv.gz", ".csv.gz"),
+    CSV_ZSTD("csv.zst", ".csv.zst"),
+    PARQUET("parquet", ".parquet");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int ZSTD_LEVEL = 3;
+
+    private final String code;
+    private final String extension;
+
+    ConversionOutputFormat(String code, String extension) {
+        this.code = code;
+        this.extension = extension;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Opens a sink that writes this format to the given file.
+     */
+    public ConversionSink openSink(Path file) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        try {
+            if (this == PARQUET) {
+                return new ParquetConversionSink(wrap(out));
+            }
+            return new CsvConversionSink(wrap(out));
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps the raw file stream with the compressor for this format (just a buffer for csv and
+     * parquet).
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        switch (this) {
+            case CSV_GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            case CSV_ZSTD:
+                return new BufferedOutputStream(new ZstdOutputStream(out, ZSTD_LEVEL), BUFFER_SIZE);
+            default:
+                return new BufferedOutputStream(out, BUFFER_SIZE);
+        }
+    }
+
+    // Accepts the format code ("csv", "csv.gz", "csv.zst", "parquet") or shorthands like "gzip" and "zstd"
+    public static ConversionOutputFormat fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return CSV;
+        }
+
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "csv":
+                return CSV;
+            case "csv.gz":
+            case "gz":
+            case "gzip":
+                return CSV_GZIP;
+            case "csv.zst":
+            case "zst":
+            case "zstd":
+                return CSV_ZSTD;
+            case "parquet":
+            case "pq":
+                return PARQUET;
+            default:
+                throw new IllegalArgumentException("Unsupported output format: " + value +
+                        " (supported: csv, csv.gz, csv.zst, parquet)");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.studentprocessor.service;
+
+import com.example.studentprocessor.dto.ProcessingResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Remembers which output file was produced for a given workbook content, transform version and
+ * output format, so resubmitting an identical workbook returns the earlier result without
+ * parsing it again.
+ *
+ * Entries are evicted least-recently-used once the entry count or the total size of the
+ * referenced files exceeds the configured limits. The cache only references output files; it
+ * never deletes them, and an entry whose file has disappeared or changed size is dropped.
+ */
+@Service
+public class ConversionResultCache {
+
+    @Value("${app.conversion.cache.max-entries:500}")
+    private int maxEntries = 500;
+
+    @Value("${app.conversion.cache.max-bytes:2147483648}")
+    private long maxBytes = 2L * 1024 * 1024 * 1024;
+
+    private final LinkedHashMap<String, CachedResult> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+
+    public static String key(String contentSha256, ConversionOutputFormat format) {
+        return contentSha256 + ":v" + StreamingExcelToCsvService.TRANSFORM_VERSION + ":" + format.getCode();
+    }
+
+    public synchronized Optional<ProcessingResult> lookup(String key, String outputDirectory) {
+        CachedResult cached = entries.get(key);
+        if (cached == null) {
+            return Optional.empty();
+        }
+
+        Path file = Paths.get(outputDirectory).resolve(cached.fileName);
+        try {
+            if (Files.exists(file) && Files.size(file) == cached.fileSize) {
+                return Optional.of(new ProcessingResult(cached.fileName, cached.recordsProcessed, 0.0));
+            }
+        } catch (IOException e) {
+            // Treat unreadable files as missing
+        }
+
+        remove(key);
+        return Optional.empty();
+    }
+
+    public synchronized void store(String key, ProcessingResult result, long fileSize) {
+        if (fileSize > maxBytes) {
+            return;
+        }
+
+        remove(key);
+        entries.put(key, new CachedResult(result.getCsvFileName(), result.getRecordsProcessed(), fileSize));
+        totalBytes += fileSize;
+
+        Iterator<CachedResult> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && eldest.hasNext()) {
+            totalBytes -= eldest.next().fileSize;
+            eldest.remove();
+        }
+    }
+
+    private void remove(String key) {
+        CachedResult removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.fileSize;
+        }
+    }
+
+    private static class CachedResult {
+        final String fileName;
+        final int recordsProcessed;
+        final long fileSize;
+
+        CachedResult(String fileName, int recordsProcessed, long fileSize) {
+            this.fileName = fileName;
+            this.recordsProcessed = recordsProcessed;
+            this.fileSize = fileSize;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.studentprocessor.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination for converted rows. Implementations own the underlying file and any compressor.
+ */
+public interface ConversionSink extends StreamingExcelToCsvService.RowListener, Closeable {
+
+    void writeHeader(String[] headers) throws IOException;
+}
@@ -0,0 +1,41 @@
+package com.example.studentprocessor.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+// Writes quoted CSV rows to a (possibly compressed) output stream
+public class CsvConversionSink implements ConversionSink {
+
+    private final BufferedWriter writer;
+    private final StringBuilder line = new StringBuilder(128);
+
+    public CsvConversionSink(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    @Override
+    public void writeHeader(String[] headers) throws IOException {
+        writer.write(String.join(",", headers));
+        writer.newLine();
+    }
+
+    @Override
+    public void onRow(String[] values) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) line.append(',');
+            line.append('"').append(values[i].replace("\"", "\"\"")).append('"');
+        }
+        writer.write(line.toString());
+        writer.newLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Closing the writer finishes the compressor frame before the file is closed
+        writer.close();
+    }
+}
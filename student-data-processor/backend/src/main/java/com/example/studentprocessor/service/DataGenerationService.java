@@ -1,9 +1,9 @@
 package com.example.studentprocessor.service;
 
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.streaming.SXSSFSheet;
-import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -12,27 +12,95 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class DataGenerationService {
 
+    // File formats the generator can write; CSV skips POI entirely and is the fast path for ingest benchmarks
+    public enum Format {
+        XLSX("xlsx", ".xlsx"),
+        CSV("csv", ".csv"),
+        CSV_GZIP("csv.gz", ".csv.gz");
+
+        private final String code;
+        private final String extension;
+
+        Format(String code, String extension) {
+            this.code = code;
+            this.extension = extension;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromParam(String value) {
+            if (value == null || value.isBlank()) {
+                return XLSX;
+            }
+            for (Format format : values()) {
+                if (format.code.equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported format '" + value + "'. Use xlsx, csv or csv.gz");
+        }
+    }
+
     @Value("${app.file.excel-output-path:C:/var/log/applications/API/dataprocessing/}")
     private String excelOutputPath;
 
-    private static final String[] CLASS_OPTIONS = {"Class1", "Class2", "Class3", "Class4", "Class5"};
-    private static final String[] FIRST_NAMES = generateNamePool(1000); // Pre-generated names for speed
-    private static final String[] LAST_NAMES = generateNamePool(1000);
-    private static final int MEMORY_ROWS = 500; // Keep only 500 rows in memory (reduced from 1000)
-    private static final int FLUSH_INTERVAL = 1000; // Flush every 1000 rows for better performance
+    // Worker threads for large files; 0 uses one per available processor
+    @Value("${app.generation.parallelism:0}")
+    private int parallelism = 0;
+
+    // Deflate level of streamed xlsx files (0 stores them uncompressed)
+    @Value("${app.xlsx.compression-level:1}")
+    private int compressionLevel = StreamingXlsxWriter.DEFAULT_COMPRESSION_LEVEL;
+
+    private final Executor xlsxDeflateExecutor;
+
+    @Autowired
+    public DataGenerationService(@Qualifier("xlsxDeflateExecutor") Executor xlsxDeflateExecutor) {
+        this.xlsxDeflateExecutor = xlsxDeflateExecutor;
+    }
 
     public String generateStudentExcelFile(int recordCount) throws IOException {
+        return generateStudentExcelFile(recordCount, null, WorkloadProfile.DEFAULT, null);
+    }
+
+    public String generateStudentExcelFile(int recordCount, Long seed, WorkloadProfile profile,
+                                           BackgroundJob job) throws IOException {
+        return generateStudentFile(recordCount, seed, profile, Format.XLSX, job);
+    }
+
+    /**
+     * Generates a workbook of random students. With a seed the rows are reproducible: the same
+     * seed and record count always produce the same data, however many workers are used.
+     *
+     * If a job is given it receives progress, and cancelling it stops the generation and removes
+     * the partial file (the job's CancellationException propagates to the caller).
+     *
+     * The profile shapes the values (class skew, score distribution, name pools, duplicate and
+     * invalid rows); see WorkloadProfile. CSV formats hold the same rows as xlsx for a given seed.
+     */
+    public String generateStudentFile(int recordCount, Long seed, WorkloadProfile profile, Format format,
+                                      BackgroundJob job) throws IOException {
         // Performance monitoring
         long startTime = System.currentTimeMillis();
-        System.out.printf("Starting generation of %,d records...%n", recordCount);
+        System.out.printf("Starting generation of %,d records (profile %s, %s)...%n",
+                recordCount, profile.getCode(), format.getCode());
+        StudentDataSynthesizer synthesizer = StudentDataSynthesizer.forProfile(profile);
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
 
         // Create output directory if it doesn't exist
         Path outputDir = Paths.get(excelOutputPath);
@@ -42,11 +110,24 @@ public class DataGenerationService {
 
         // Generate unique filename with timestamp
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String fileName = String.format("student_data_%s_%d_records.xlsx", timestamp, recordCount);
+        String fileName = String.format("student_data_%s_%d_records%s", timestamp, recordCount, format.getExtension());
+        // Concurrent generation jobs can start within the same second
+        for (int n = 2; Files.exists(outputDir.resolve(fileName)); n++) {
+            fileName = String.format("student_data_%s_%d_records_%d%s", timestamp, recordCount, n, format.getExtension());
+        }
         String fullPath = excelOutputPath + fileName;
 
-        // Use XSSFWorkbook for small files, SXSSFWorkbook for large files
-        if (recordCount <= 10000) {
+        // Use XSSFWorkbook for small files, parallel shards for large or seeded files
+        if (job != null) {
+            job.setTotal(recordCount);
+        }
+
+        if (format != Format.XLSX) {
+            long rowSeed = seed != null ? seed : ThreadLocalRandom.current().nextLong();
+            System.out.printf("Generating with %d workers, seed %d%n", workers, rowSeed);
+            new ParallelCsvGenerator(workers, synthesizer, format == Format.CSV_GZIP, job)
+                    .generate(Paths.get(fullPath), recordCount, rowSeed);
+        } else if (recordCount <= 10000 && seed == null) {
             // Use XSSFWorkbook for small files to ensure compatibility
             try (XSSFWorkbook workbook = new XSSFWorkbook()) {
                 Sheet sheet = workbook.createSheet("Students");
@@ -55,7 +136,7 @@ public class DataGenerationService {
                 createHeaderRow(sheet);
 
                 // Generate student data rows
-                generateStudentDataRows(sheet, recordCount);
+                generateStudentDataRows(sheet, recordCount, synthesizer);
 
                 // Write to file
                 try (FileOutputStream fileOut = new FileOutputStream(fullPath)) {
@@ -63,35 +144,21 @@ public class DataGenerationService {
                     fileOut.flush();
                 }
             }
+            if (job != null) {
+                job.addProcessed(recordCount);
+            }
+        } else if (seed != null || workers > 1) {
+            long rowSeed = seed != null ? seed : ThreadLocalRandom.current().nextLong();
+            System.out.printf("Generating with %d workers, seed %d%n", workers, rowSeed);
+            new ParallelXlsxGenerator(workers, synthesizer, job)
+                    .withCompression(compressionLevel, xlsxDeflateExecutor)
+                    .generate(Paths.get(fullPath), recordCount, rowSeed);
         } else {
-            // Use SXSSFWorkbook for large files with streaming
-            try (SXSSFWorkbook workbook = new SXSSFWorkbook(MEMORY_ROWS)) {
-                // Enable compression to reduce temp file size
-                workbook.setCompressTempFiles(true);
-
-                Sheet sheet = workbook.createSheet("Students");
-
-                // Create header row
-                createHeaderRow(sheet);
-
-                // Generate student data rows with optimized memory management
-                generateStudentDataRowsOptimized(sheet, recordCount);
-
-                // Write to file with explicit flush & sync to avoid truncated files
-                try (FileOutputStream fileOut = new FileOutputStream(fullPath)) {
-                    workbook.write(fileOut);
-                    fileOut.flush();
-                    try {
-                        fileOut.getFD().sync();
-                    } catch (IOException e) {
-                        System.err.println("Warning: FileDescriptor.sync() failed: " + e.getMessage());
-                    }
-                }
+            // Single worker: stream rows straight into the xlsx zip
+            writeStudentRowsStreaming(Paths.get(fullPath), recordCount, synthesizer, job);
+        }
 
-                // Dispose of temporary files after writing
-                workbook.dispose();
-            }
-        }        // Performance reporting
+        // Performance reporting
         long endTime = System.currentTimeMillis();
         long duration = endTime - startTime;
         double recordsPerSecond = recordCount / (duration / 1000.0);
@@ -117,7 +184,7 @@ public class DataGenerationService {
         headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
 
         // Create header cells
-        String[] headers = {"studentId", "firstName", "lastName", "DOB", "class", "score"};
+        String[] headers = StudentDataSynthesizer.HEADERS;
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
@@ -125,110 +192,50 @@ public class DataGenerationService {
         }
     }
 
-    private void generateStudentDataRows(Sheet sheet, int recordCount) {
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-
-        // Pre-calculate date range for better performance
-        long startEpochDay = LocalDate.of(2000, 1, 1).toEpochDay();
-        long endEpochDay = LocalDate.of(2010, 12, 31).toEpochDay();
-        long dateRange = endEpochDay - startEpochDay + 1;
+    private void generateStudentDataRows(Sheet sheet, int recordCount, StudentDataSynthesizer synthesizer) {
+        SplittableRandom random = new SplittableRandom();
+        StudentDataSynthesizer.Row student = new StudentDataSynthesizer.Row();
 
         for (int i = 1; i <= recordCount; i++) {
             Row row = sheet.createRow(i);
-
-            // studentId - numeric incremental starting from 1
-            row.createCell(0).setCellValue(i);
-
-            // firstName - from pre-generated pool for speed
-            row.createCell(1).setCellValue(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
-
-            // lastName - from pre-generated pool for speed
-            row.createCell(2).setCellValue(LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
-
-            // DOB - optimized random date generation
-            LocalDate randomDate = LocalDate.ofEpochDay(startEpochDay + random.nextLong(dateRange));
-            row.createCell(3).setCellValue(randomDate.toString());
-
-            // class - random from predefined options
-            row.createCell(4).setCellValue(CLASS_OPTIONS[random.nextInt(CLASS_OPTIONS.length)]);
-
-            // score - random number between 55 and 75
-            row.createCell(5).setCellValue(55 + random.nextInt(21));
+            synthesizer.next(student, i - 1, recordCount, random);
+
+            row.createCell(0).setCellValue(student.studentId);
+            row.createCell(1).setCellValue(student.firstName);
+            row.createCell(2).setCellValue(student.lastName);
+            row.createCell(3).setCellValue(student.dob);
+            row.createCell(4).setCellValue(student.className);
+            row.createCell(5).setCellValue(student.score);
         }
     }
 
-    private void generateStudentDataRowsOptimized(Sheet sheet, int recordCount) throws IOException {
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-        SXSSFSheet sxssfSheet = (SXSSFSheet) sheet;
-
-        // Pre-calculate date range for better performance
-        long startEpochDay = LocalDate.of(2000, 1, 1).toEpochDay();
-        long endEpochDay = LocalDate.of(2010, 12, 31).toEpochDay();
-        long dateRange = endEpochDay - startEpochDay + 1;
-
-        for (int i = 1; i <= recordCount; i++) {
-            Row row = sheet.createRow(i);
-
-            // studentId - numeric incremental starting from 1
-            row.createCell(0).setCellValue(i);
-
-            // firstName - from pre-generated pool for speed
-            row.createCell(1).setCellValue(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
-
-            // lastName - from pre-generated pool for speed
-            row.createCell(2).setCellValue(LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
-
-            // DOB - optimized random date generation
-            LocalDate randomDate = LocalDate.ofEpochDay(startEpochDay + random.nextLong(dateRange));
-            row.createCell(3).setCellValue(randomDate.toString());
-
-            // class - random from predefined options
-            row.createCell(4).setCellValue(CLASS_OPTIONS[random.nextInt(CLASS_OPTIONS.length)]);
-
-            // score - random number between 55 and 75
-            row.createCell(5).setCellValue(55 + random.nextInt(21));
-
-            // Aggressive memory management - flush frequently
-            if (i % FLUSH_INTERVAL == 0) {
-                sxssfSheet.flushRows(FLUSH_INTERVAL);
+    private void writeStudentRowsStreaming(Path file, int recordCount, StudentDataSynthesizer synthesizer,
+                                           BackgroundJob job) throws IOException {
+        SplittableRandom random = new SplittableRandom();
+        StudentDataSynthesizer.Row student = new StudentDataSynthesizer.Row();
+
+        try (StreamingXlsxWriter workbook = StreamingXlsxWriter.open(file, "Students",
+                StudentDataSynthesizer.HEADERS, recordCount, compressionLevel, xlsxDeflateExecutor)) {
+            for (int i = 1; i <= recordCount; i++) {
+                synthesizer.next(student, i - 1, recordCount, random);
+                StudentDataSynthesizer.writeRow(workbook, student);
+                if (job != null && i % ParallelXlsxGenerator.CHECKPOINT_ROWS == 0) {
+                    job.checkpoint(ParallelXlsxGenerator.CHECKPOINT_ROWS);
+                }
 
-                // Progress logging for large datasets with memory info
-                if (i % 10000 == 0) {
-                    Runtime runtime = Runtime.getRuntime();
-                    long usedMemory = runtime.totalMemory() - runtime.freeMemory();
-                    System.out.printf("Progress: %,d/%,d records (%.1f%%) - Memory: %.1f MB%n",
-                                    i, recordCount, (i * 100.0 / recordCount), usedMemory / 1024.0 / 1024.0);
+                // Progress logging for large datasets
+                if (i % 100000 == 0) {
+                    System.out.printf("Progress: %,d/%,d records (%.1f%%)%n", i, recordCount, (i * 100.0 / recordCount));
                 }
             }
-        }
-
-        // Final flush to ensure all data is written
-        sxssfSheet.flushRows();
-        System.out.printf("Generation completed: %,d records%n", recordCount);
-    }
-
-    // Pre-generate name pools for better performance
-    private static String[] generateNamePool(int poolSize) {
-        String[] names = new String[poolSize];
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-
-        for (int i = 0; i < poolSize; i++) {
-            int length = 3 + random.nextInt(6); // Names 3-8 characters
-            StringBuilder name = new StringBuilder(length);
-
-            // First character uppercase
-            name.append(alphabet.charAt(random.nextInt(26)));
-
-            // Remaining characters lowercase
-            for (int j = 1; j < length; j++) {
-                name.append((char) ('a' + random.nextInt(26)));
+            if (job != null) {
+                job.checkpoint(recordCount % ParallelXlsxGenerator.CHECKPOINT_ROWS);
             }
-
-            names[i] = name.toString();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
         }
-
-        return names;
+        System.out.printf("Generation completed: %,d records%n", recordCount);
     }
 
     // Removed unused autoSizeColumns method for code cleanliness
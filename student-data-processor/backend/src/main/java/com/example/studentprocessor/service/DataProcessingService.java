@@ -6,10 +6,16 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
 
 @Service
 public class DataProcessingService {
@@ -20,10 +26,31 @@ public class DataProcessingService {
     @Autowired
     private StreamingExcelToCsvService streamingService;
 
+    @Autowired
+    private ConversionResultCache resultCache;
+
+    // Directory the converted files are written to (app.file.csv-output-path)
+    public String getOutputDirectory() {
+        return streamingService.getOutputDirectory();
+    }
+
     public ProcessingResult convertExcelToCsv(MultipartFile file) throws IOException {
+        return convertExcelToCsv(file, ConversionOutputFormat.CSV);
+    }
+
+    public ProcessingResult convertExcelToCsv(MultipartFile file, ConversionOutputFormat format) throws IOException {
         System.out.println("=== Excel to CSV Processing Started ===");
         System.out.printf("File: %s (%.2f MB)%n", file.getOriginalFilename(), file.getSize() / (1024.0 * 1024.0));
 
+        return convertSavedFile(saveUpload(file), format, null);
+    }
+
+    /**
+     * Saves the uploaded workbook to a temp file next to the CSV output, hashing it with SHA-256
+     * while it is copied. The multipart data is only readable during the request, so async jobs
+     * call this before handing off.
+     */
+    public SavedUpload saveUpload(MultipartFile file) throws IOException {
         // Create output directory if it doesn't exist
         Path outputDir = Paths.get(csvOutputPath);
         if (!Files.exists(outputDir)) {
@@ -33,31 +60,82 @@ public class DataProcessingService {
 
         // Save uploaded file temporarily
         String tempFileName = "temp_" + System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        String tempFilePath = csvOutputPath + tempFileName;
+        Path tempFilePath = outputDir.resolve(tempFileName);
+
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, tempFilePath);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFilePath);
+            throw new IOException("Failed to save uploaded file: " + e.getMessage(), e);
+        }
+
+        String contentHash = HexFormat.of().formatHex(digest.digest());
+        System.out.println("Saved temp file: " + tempFilePath + " (sha256 " + contentHash + ")");
+        return new SavedUpload(tempFilePath, contentHash);
+    }
+
+    /**
+     * Converts a workbook saved by saveUpload and always deletes it afterwards. Identical content
+     * converted earlier with the same transform version and format is served from the cache.
+     */
+    public ProcessingResult convertSavedFile(SavedUpload upload, ConversionOutputFormat format,
+                                             StreamingExcelToCsvService.RowListener observer) throws IOException {
+        Path tempFilePath = upload.getPath();
+        String cacheKey = ConversionResultCache.key(upload.getContentHash(), format);
 
         try {
-            // Save uploaded file
-            file.transferTo(new File(tempFilePath));
-            System.out.println("Saved temp file: " + tempFilePath);
+            Optional<ProcessingResult> cached = resultCache.lookup(cacheKey, streamingService.getOutputDirectory());
+            if (cached.isPresent()) {
+                System.out.println("Conversion cache hit: reusing " + cached.get().getCsvFileName());
+                return cached.get();
+            }
 
             // Use streaming conversion for all files to avoid memory issues
-            ProcessingResult result = streamingService.convertExcelToCsvStreaming(tempFilePath);
-
-            // Clean up temp file
-            Files.deleteIfExists(Paths.get(tempFilePath));
-            System.out.println("Cleaned up temp file");
+            ProcessingResult result = streamingService.convertExcelToCsvStreaming(tempFilePath.toString(), format, observer);
 
+            Path outputFile = Paths.get(streamingService.getOutputDirectory()).resolve(result.getCsvFileName());
+            resultCache.store(cacheKey, result, Files.size(outputFile));
             return result;
 
         } catch (Exception e) {
-            // Clean up temp file on error
+            throw new IOException("Failed to convert Excel to CSV: " + e.getMessage(), e);
+
+        } finally {
+            // Clean up temp file
             try {
-                Files.deleteIfExists(Paths.get(tempFilePath));
+                Files.deleteIfExists(tempFilePath);
+                System.out.println("Cleaned up temp file");
             } catch (Exception cleanupError) {
                 System.err.println("Failed to clean up temp file: " + cleanupError.getMessage());
             }
+        }
+    }
 
-            throw new IOException("Failed to convert Excel to CSV: " + e.getMessage(), e);
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Uploaded workbook stored on disk together with the hash of its content
+    public static class SavedUpload {
+        private final Path path;
+        private final String contentHash;
+
+        public SavedUpload(Path path, String contentHash) {
+            this.path = path;
+            this.contentHash = contentHash;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getContentHash() {
+            return contentHash;
         }
     }
 }
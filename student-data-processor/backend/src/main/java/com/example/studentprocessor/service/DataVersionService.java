@@ -0,0 +1,29 @@
+package com.example.studentprocessor.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts changes to the students table. Anything computed from the data can be stored with the
+ * version it was computed at and reused while the version is unchanged.
+ *
+ * Events published inside a transaction only bump the version once it commits, so a reader never
+ * sees the new version before the new data.
+ */
+@Service
+public class DataVersionService {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStudentDataChanged(StudentDataChangedEvent event) {
+        long current = version.incrementAndGet();
+        System.out.println("Student data changed by " + event.getSource() + ", data version " + current);
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.studentprocessor.service;
+
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared strings table that keeps the strings on disk instead of on the heap.
+ *
+ * The sharedStrings.xml part is parsed once with SAX: every string is appended as UTF-8 to a
+ * data file and its start offset to an index file. Lookups read the offset pair from the
+ * memory-mapped index and the bytes from the data file, so heap usage is limited to a small
+ * LRU of recently used strings no matter how many distinct strings the workbook holds.
+ *
+ * Not thread-safe - create one instance per conversion.
+ */
+public class DiskBackedSharedStringsTable implements SharedStrings, Closeable {
+
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final FileChannel dataChannel;
+    private final LongBuffer offsets;
+    private final int uniqueCount;
+    private final int count;
+    private final Map<Integer, String> hotEntries;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(256);
+
+    public DiskBackedSharedStringsTable(InputStream sharedStringsXml) throws IOException, SAXException {
+        this(sharedStringsXml, DEFAULT_CACHE_SIZE);
+    }
+
+    public DiskBackedSharedStringsTable(InputStream sharedStringsXml, int cacheSize) throws IOException, SAXException {
+        this.dataFile = Files.createTempFile("sst_data_", ".bin");
+        this.indexFile = Files.createTempFile("sst_index_", ".bin");
+
+        try {
+            SstSpoolHandler handler = new SstSpoolHandler(dataFile, indexFile);
+            try {
+                if (sharedStringsXml != null) {
+                    XMLReader parser = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+                    parser.setContentHandler(handler);
+                    parser.parse(new InputSource(sharedStringsXml));
+                }
+            } finally {
+                handler.finish();
+            }
+            this.uniqueCount = handler.getUniqueCount();
+            this.count = handler.getCount();
+
+            this.dataChannel = FileChannel.open(dataFile, StandardOpenOption.READ);
+            try (FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed
+                MappedByteBuffer mapped = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+                this.offsets = mapped.asLongBuffer();
+            }
+        } catch (ParserConfigurationException e) {
+            deleteQuietly(dataFile);
+            deleteQuietly(indexFile);
+            throw new IOException("Unable to create shared strings parser", e);
+        } catch (IOException | SAXException | RuntimeException e) {
+            deleteQuietly(dataFile);
+            deleteQuietly(indexFile);
+            throw e;
+        }
+
+        int capacity = Math.max(1, cacheSize);
+        this.hotEntries = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        System.out.printf("Shared strings spooled to disk: %,d unique strings (%.2f MB)%n",
+                uniqueCount, dataChannel.size() / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Returns the decoded string at the given index, reading it from disk on a cache miss.
+     */
+    public String getString(int idx) {
+        if (idx < 0 || idx >= uniqueCount) {
+            throw new IndexOutOfBoundsException("Shared string index " + idx + " out of range (0-" + (uniqueCount - 1) + ")");
+        }
+
+        String value = hotEntries.get(idx);
+        if (value == null) {
+            value = readFromDisk(idx);
+            hotEntries.put(idx, value);
+        }
+        return value;
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        return new XSSFRichTextString(getString(idx));
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public int getUniqueCount() {
+        return uniqueCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        hotEntries.clear();
+        try {
+            dataChannel.close();
+        } finally {
+            deleteQuietly(dataFile);
+            deleteQuietly(indexFile);
+        }
+    }
+
+    private String readFromDisk(int idx) {
+        long start = offsets.get(idx);
+        int length = (int) (offsets.get(idx + 1) - start);
+
+        if (readBuffer.capacity() < length) {
+            readBuffer = ByteBuffer.allocate(Math.max(length, readBuffer.capacity() * 2));
+        }
+        readBuffer.clear().limit(length);
+
+        try {
+            long position = start;
+            while (readBuffer.hasRemaining()) {
+                int read = dataChannel.read(readBuffer, position);
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of shared strings data at index " + idx);
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read shared string " + idx, e);
+        }
+
+        return new String(readBuffer.array(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Mapped files cannot be deleted on some platforms until the mapping is collected
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    // Decode the _xHHHH_ escapes Excel uses for control characters, same as XSSFRichTextString
+    static String decodeEscapes(String value) {
+        if (value.indexOf("_x") < 0) {
+            return value;
+        }
+
+        StringBuilder decoded = new StringBuilder(value.length());
+        int i = 0;
+        while (i < value.length()) {
+            if (i + 6 < value.length() && value.charAt(i) == '_' && value.charAt(i + 1) == 'x'
+                    && value.charAt(i + 6) == '_' && isHex(value, i + 2, i + 6)) {
+                decoded.append((char) Integer.parseInt(value.substring(i + 2, i + 6), 16));
+                i += 7;
+            } else {
+                decoded.append(value.charAt(i++));
+            }
+        }
+        return decoded.toString();
+    }
+
+    private static boolean isHex(String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Streams each <si> entry to the data file and records its offset in the index file
+    private static class SstSpoolHandler extends DefaultHandler {
+        private final DataOutputStream data;
+        private final DataOutputStream index;
+        private final StringBuilder current = new StringBuilder();
+        private long offset = 0;
+        private int uniqueCount = 0;
+        private int count = 0;
+        private boolean inItem;
+        private boolean inText;
+        private boolean inPhonetic;
+
+        SstSpoolHandler(Path dataFile, Path indexFile) throws IOException {
+            this.data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile), 64 * 1024));
+            this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile), 64 * 1024));
+            index.writeLong(0);
+        }
+
+        int getUniqueCount() {
+            return uniqueCount;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String name, Attributes attributes) {
+            String element = stripPrefix(name);
+            if (element.equals("sst")) {
+                String countValue = attributes.getValue("count");
+                if (countValue != null) {
+                    count = Integer.parseInt(countValue);
+                }
+            } else if (element.equals("si")) {
+                current.setLength(0);
+                inItem = true;
+            } else if (element.equals("rPh")) {
+                inPhonetic = true;
+            } else if (element.equals("t") && inItem && !inPhonetic) {
+                inText = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String name) throws SAXException {
+            String element = stripPrefix(name);
+            if (element.equals("t")) {
+                inText = false;
+            } else if (element.equals("rPh")) {
+                inPhonetic = false;
+            } else if (element.equals("si")) {
+                inItem = false;
+                try {
+                    byte[] bytes = decodeEscapes(current.toString()).getBytes(StandardCharsets.UTF_8);
+                    data.write(bytes);
+                    offset += bytes.length;
+                    index.writeLong(offset);
+                    uniqueCount++;
+                } catch (IOException e) {
+                    throw new SAXException("Failed to spool shared string " + uniqueCount, e);
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText) {
+                current.append(ch, start, length);
+            }
+        }
+
+        void finish() throws IOException {
+            try {
+                data.close();
+            } finally {
+                index.close();
+            }
+            if (count < uniqueCount) {
+                count = uniqueCount;
+            }
+        }
+
+        private static String stripPrefix(String name) {
+            int colon = name.indexOf(':');
+            return colon < 0 ? name : name.substring(colon + 1);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.studentprocessor.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs report exports as background jobs on the exportJobExecutor.
+ *
+ * Requests for the same format and filter share one export: a request arriving while an identical
+ * export is queued or running attaches to that job, and a completed export is handed out again
+ * for as long as the student data is unchanged (same DataVersionService version) and its file is
+ * still on disk. When everyone clicks "Export all" at once, only the first click runs a query.
+ */
+@Service
+public class ExportJobService {
+
+    private final ReportService reportService;
+    private final DataVersionService dataVersionService;
+    private final Executor executor;
+    private final Map<String, BackgroundJob> jobs = new ConcurrentHashMap<>();
+    // Latest export per format and filter, with the data version it was started at
+    private final Map<String, SharedExport> exportsByKey = new ConcurrentHashMap<>();
+
+    // Finished jobs are forgotten after this long; their files stay on disk
+    @Value("${app.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Autowired
+    public ExportJobService(ReportService reportService, DataVersionService dataVersionService,
+                            @Qualifier("exportJobExecutor") Executor executor) {
+        this.reportService = reportService;
+        this.dataVersionService = dataVersionService;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the job producing this export: an identical queued, running or reusable completed
+     * job if there is one, otherwise a newly queued job. partitions only affects how a new
+     * export runs, not which exports are shared.
+     *
+     * @throws RejectedExecutionException when the export queue is full
+     */
+    public ExportSubmission submit(ReportService.ExportFormat format, Long studentId, String className, int partitions) {
+        purgeExpiredJobs();
+
+        String key = format.name() + "|" + studentId + "|" + className;
+        long dataVersion = dataVersionService.getVersion();
+
+        synchronized (exportsByKey) {
+            SharedExport existing = exportsByKey.get(key);
+            if (existing != null && existing.dataVersion == dataVersion && isReusable(existing.job)) {
+                System.out.println("Export " + key + " attached to job " + existing.job.getId()
+                        + " (" + existing.job.getStatus() + ", data version " + dataVersion + ")");
+                return new ExportSubmission(existing.job, true);
+            }
+
+            BackgroundJob job = new BackgroundJob("export-" + format.getExtension());
+            jobs.put(job.getId(), job);
+            try {
+                executor.execute(() -> run(job, format, studentId, className, partitions));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.getId());
+                System.err.println("Export rejected, too many jobs queued");
+                throw e;
+            }
+            exportsByKey.put(key, new SharedExport(job, dataVersion));
+
+            System.out.println("Queued export job " + job.getId() + ": " + key + " at data version " + dataVersion);
+            return new ExportSubmission(job, false);
+        }
+    }
+
+    public Optional<BackgroundJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private boolean isReusable(BackgroundJob job) {
+        if (!job.isFinished()) {
+            return true;
+        }
+        // A completed export is only reused while its file exists; failed ones are retried
+        return job.getStatus() == BackgroundJob.Status.COMPLETED && job.getResultFileName() != null
+                && Files.isRegularFile(Paths.get(reportService.getOutputPath()).resolve(job.getResultFileName()));
+    }
+
+    private void run(BackgroundJob job, ReportService.ExportFormat format, Long studentId, String className,
+                     int partitions) {
+        job.markRunning();
+        System.out.println("Export job " + job.getId() + " started on " + Thread.currentThread().getName());
+
+        try {
+            String fileName;
+            switch (format) {
+                case EXCEL:
+                    fileName = reportService.exportToExcel(studentId, className, partitions);
+                    break;
+                case CSV:
+                    fileName = reportService.exportToCsv(studentId, className, partitions);
+                    break;
+                default:
+                    fileName = reportService.exportToPdf(studentId, className);
+            }
+            job.markCompleted(fileName);
+            System.out.println("Export job " + job.getId() + " completed: " + fileName);
+        } catch (Exception e) {
+            job.markFailed(e.getMessage());
+            System.err.println("Export job " + job.getId() + " failed: " + e.getMessage());
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMinutes * 60_000L;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+        // Exports of an older data version can never be reused again
+        long dataVersion = dataVersionService.getVersion();
+        exportsByKey.values().removeIf(export -> export.job.isFinished()
+                && (export.dataVersion != dataVersion || export.job.getFinishedAt() < cutoff));
+    }
+
+    // The job serving a submission and whether it was shared with an earlier request
+    public static class ExportSubmission {
+        private final BackgroundJob job;
+        private final boolean reused;
+
+        ExportSubmission(BackgroundJob job, boolean reused) {
+            this.job = job;
+            this.reused = reused;
+        }
+
+        public BackgroundJob getJob() {
+            return job;
+        }
+
+        public boolean isReused() {
+            return reused;
+        }
+    }
+
+    private static class SharedExport {
+        final BackgroundJob job;
+        final long dataVersion;
+
+        SharedExport(BackgroundJob job, long dataVersion) {
+            this.job = job;
+            this.dataVersion = dataVersion;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.studentprocessor.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * Runs synthetic data generation (to an xlsx or CSV file or straight into the database) as background
+ * jobs on the generationExecutor, whose pool size limits how many generations run at once.
+ * Progress can be polled or streamed as server-sent events.
+ */
+@Service
+public class GenerationJobService {
+
+    public enum Target {
+        EXCEL, DATABASE;
+
+        public static Target fromParam(String value) {
+            for (Target target : values()) {
+                if (target.name().equalsIgnoreCase(value)) {
+                    return target;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported target '" + value + "'. Use excel or database");
+        }
+    }
+
+    private static final long EVENT_INTERVAL_MILLIS = 1000;
+    private static final long EVENT_STREAM_TIMEOUT_MILLIS = 60 * 60 * 1000L;
+
+    private final DataGenerationService dataGenerationService;
+    private final SyntheticDataLoadService syntheticDataLoadService;
+    private final Executor executor;
+    private final Map<String, BackgroundJob> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService eventScheduler = Executors.newSingleThreadScheduledExecutor();
+
+    // Finished jobs are forgotten after this long; generated files stay on disk
+    @Value("${app.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Autowired
+    public GenerationJobService(DataGenerationService dataGenerationService,
+                                SyntheticDataLoadService syntheticDataLoadService,
+                                @Qualifier("generationExecutor") Executor executor) {
+        this.dataGenerationService = dataGenerationService;
+        this.syntheticDataLoadService = syntheticDataLoadService;
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a generation job.
+     *
+     * @throws RejectedExecutionException when the generation queue is full
+     */
+    public BackgroundJob submit(Target target, int recordCount, Long seed, WorkloadProfile profile,
+                               DataGenerationService.Format format) {
+        purgeExpiredJobs();
+
+        BackgroundJob job = new BackgroundJob(target == Target.EXCEL ? "generate-excel" : "generate-database");
+        job.setTotal(recordCount);
+        jobs.put(job.getId(), job);
+
+        try {
+            executor.execute(() -> run(job, target, recordCount, seed, profile, format));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            System.err.println("Generation rejected, too many jobs queued");
+            throw e;
+        }
+
+        System.out.printf("Queued generation job %s: %,d %s records to %s%n",
+                job.getId(), recordCount, profile.getCode(), target);
+        return job;
+    }
+
+    public Optional<BackgroundJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public boolean cancel(String jobId) {
+        BackgroundJob job = jobs.get(jobId);
+        if (job == null || job.isFinished()) {
+            return false;
+        }
+        job.requestCancel();
+        return true;
+    }
+
+    // Sends the job state as a "progress" event every second until the job finishes
+    public SseEmitter streamEvents(BackgroundJob job) {
+        SseEmitter emitter = new SseEmitter(EVENT_STREAM_TIMEOUT_MILLIS);
+        CompletableFuture<ScheduledFuture<?>> schedule = new CompletableFuture<>();
+
+        Runnable stop = () -> schedule.thenAccept(task -> task.cancel(false));
+        emitter.onCompletion(stop);
+        emitter.onTimeout(stop);
+        emitter.onError(error -> stop.run());
+
+        schedule.complete(eventScheduler.scheduleAtFixedRate(() -> {
+            try {
+                boolean finished = job.isFinished();
+                emitter.send(SseEmitter.event().name("progress").data(job.toMap()));
+                if (finished) {
+                    emitter.complete();
+                    stop.run();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away
+                stop.run();
+            }
+        }, 0, EVENT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+
+        return emitter;
+    }
+
+    private void run(BackgroundJob job, Target target, int recordCount, Long seed, WorkloadProfile profile,
+                     DataGenerationService.Format format) {
+        if (job.isCancelRequested()) {
+            job.markCancelled();
+            return;
+        }
+
+        job.markRunning();
+        System.out.println("Generation job " + job.getId() + " started on " + Thread.currentThread().getName());
+
+        try {
+            if (target == Target.EXCEL) {
+                String fileName = dataGenerationService.generateStudentFile(recordCount, seed, profile, format, job);
+                job.setProcessed(recordCount);
+                job.markCompleted(fileName);
+            } else {
+                syntheticDataLoadService.loadStudents(recordCount, seed, profile, job);
+                job.setProcessed(recordCount);
+                job.markCompleted(null);
+            }
+            System.out.println("Generation job " + job.getId() + " completed");
+        } catch (CancellationException e) {
+            job.markCancelled();
+            System.out.println("Generation job " + job.getId() + " cancelled");
+        } catch (Exception e) {
+            job.markFailed(e.getMessage());
+            System.err.println("Generation job " + job.getId() + " failed: " + e.getMessage());
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMinutes * 60_000L;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(BackgroundJob::requestCancel);
+        eventScheduler.shutdownNow();
+    }
+}
@@ -5,6 +5,7 @@ import com.example.studentprocessor.repository.StudentRepository;
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -22,13 +23,15 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class OptimizedDataUploadService {
 
     private final StudentRepository studentRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private final AtomicInteger progressCounter = new AtomicInteger(0);
     private int totalRecords = 0;
     private volatile boolean cancelRequested = false;
 
     @Autowired
-    public OptimizedDataUploadService(StudentRepository studentRepository) {
+    public OptimizedDataUploadService(StudentRepository studentRepository, ApplicationEventPublisher eventPublisher) {
         this.studentRepository = studentRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -45,6 +48,8 @@ public class OptimizedDataUploadService {
         int processedRecords = 0;
         int skippedRecords = 0;
         int newRecords = 0;
+        // Classes and scores of the saved rows, for the in-memory score histograms
+        ClassScoreCounts inserted = new ClassScoreCounts();
         progressCounter.set(0);
     long elapsed = 0;
     try (CSVReader csvReader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
@@ -80,6 +85,7 @@ public class OptimizedDataUploadService {
                         processedRecords++;
                         if (students.size() >= BATCH_SIZE) {
                             studentRepository.saveAll(students);
+                            inserted.addAll(students);
                             students.clear();
                             progressCounter.set(processedRecords);
                             System.out.println("📊 Progress: " + processedRecords + "/" + totalRecords +
@@ -95,6 +101,7 @@ public class OptimizedDataUploadService {
             }
             if (!students.isEmpty()) {
                 studentRepository.saveAll(students);
+                inserted.addAll(students);
                 progressCounter.set(processedRecords);
                 if (cancelRequested) {
                     System.out.println("🔄 Upload cancelled but saved " + processedRecords +
@@ -110,6 +117,8 @@ public class OptimizedDataUploadService {
         result.setProcessingTime(elapsed);
         result.setSuccess(true);
         result.setVerificationMessage(verifyUploadedData());
+        // Delivered once the upload transaction commits
+        eventPublisher.publishEvent(new StudentDataChangedEvent("csv-upload", inserted, newRecords));
         return result;
         }
     // Helper to parse a student from CSV row
@@ -0,0 +1,180 @@
+package com.example.studentprocessor.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates synthetic students as CSV or gzipped CSV, bypassing POI and the xlsx writer.
+ *
+ * Workers encode chunks of rows straight to ASCII bytes in memory (every pool value is plain
+ * ASCII, so no charset encoder is involved) and the calling thread writes finished chunks to a
+ * FileChannel in order. With gzip every chunk is compressed by its worker into its own gzip
+ * member; concatenated members form a valid gzip file, so compression runs on all cores too.
+ *
+ * Chunks and RNGs follow the same plan as ParallelXlsxGenerator, so a seed produces the same
+ * rows as the xlsx output.
+ */
+class ParallelCsvGenerator {
+
+    private static final int INITIAL_CHUNK_BYTES = 4 * 1024 * 1024;
+
+    private final int parallelism;
+    private final StudentDataSynthesizer synthesizer;
+    private final boolean gzip;
+    private final BackgroundJob job;
+
+    // job may be null; when set it receives progress and can cancel the generation
+    ParallelCsvGenerator(int parallelism, StudentDataSynthesizer synthesizer, boolean gzip, BackgroundJob job) {
+        this.parallelism = Math.max(1, parallelism);
+        this.synthesizer = synthesizer;
+        this.gzip = gzip;
+        this.job = job;
+    }
+
+    void generate(Path target, int recordCount, long seed) throws IOException {
+        List<ParallelXlsxGenerator.Chunk> chunks = ParallelXlsxGenerator.planChunks(recordCount, new SplittableRandom(seed));
+        // Chunks encoded ahead of the writer, bounding the memory held in encoded chunks
+        int window = parallelism * 2;
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            AsciiBuffer header = new AsciiBuffer(128);
+            header.putAscii(String.join(",", StudentDataSynthesizer.HEADERS)).put('\n');
+            writeFully(channel, finish(header));
+
+            int submitted = 0;
+            for (ParallelXlsxGenerator.Chunk chunk : chunks) {
+                while (submitted < chunks.size() && submitted < chunk.index + window) {
+                    ParallelXlsxGenerator.Chunk next = chunks.get(submitted++);
+                    pending.add(workers.submit(() -> encodeChunk(next, recordCount)));
+                }
+                writeFully(channel, await(pending.poll()));
+            }
+            System.out.printf("Generated %,d CSV rows in %d chunks on %d workers%s%n",
+                    recordCount, chunks.size(), parallelism, gzip ? " (gzip)" : "");
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private ByteBuffer encodeChunk(ParallelXlsxGenerator.Chunk chunk, int recordCount) throws IOException {
+        AsciiBuffer csv = new AsciiBuffer(INITIAL_CHUNK_BYTES);
+        StudentDataSynthesizer.Row row = new StudentDataSynthesizer.Row();
+        for (long position = chunk.firstPosition; position <= chunk.lastPosition; position++) {
+            synthesizer.next(row, position - 1, recordCount, chunk.random);
+            csv.putLong(row.studentId).put(',')
+                    .putAscii(row.firstName).put(',')
+                    .putAscii(row.lastName).put(',')
+                    .putAscii(row.dob).put(',')
+                    .putAscii(row.className).put(',')
+                    .putLong(row.score).put('\n');
+            if (job != null && (position - chunk.firstPosition + 1) % ParallelXlsxGenerator.CHECKPOINT_ROWS == 0) {
+                job.checkpoint(ParallelXlsxGenerator.CHECKPOINT_ROWS);
+            }
+        }
+        if (job != null) {
+            job.checkpoint(chunk.rows() % ParallelXlsxGenerator.CHECKPOINT_ROWS);
+        }
+        return finish(csv);
+    }
+
+    // The encoded bytes, as a complete gzip member when compressing
+    private ByteBuffer finish(AsciiBuffer csv) throws IOException {
+        if (!gzip) {
+            return ByteBuffer.wrap(csv.bytes, 0, csv.length);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(csv.length / 4 + 64);
+        try (GZIPOutputStream member = new GZIPOutputStream(compressed, 64 * 1024)) {
+            member.write(csv.bytes, 0, csv.length);
+        }
+        return ByteBuffer.wrap(compressed.toByteArray());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static ByteBuffer await(Future<ByteBuffer> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException("Chunk generation failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Generation interrupted");
+        }
+    }
+
+    // Growable byte array that encodes ASCII text and numbers without going through a charset
+    static final class AsciiBuffer {
+        private byte[] bytes;
+        private int length;
+
+        AsciiBuffer(int initialCapacity) {
+            bytes = new byte[initialCapacity];
+        }
+
+        AsciiBuffer put(char c) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) c;
+            return this;
+        }
+
+        AsciiBuffer putAscii(String value) {
+            int n = value.length();
+            ensureCapacity(n);
+            for (int i = 0; i < n; i++) {
+                bytes[length++] = (byte) value.charAt(i);
+            }
+            return this;
+        }
+
+        AsciiBuffer putLong(long value) {
+            if (value < 0) {
+                put('-');
+                value = -value;
+            }
+            int digits = 1;
+            for (long v = value; v >= 10; v /= 10) {
+                digits++;
+            }
+            ensureCapacity(digits);
+            for (int i = length + digits - 1; i >= length; i--) {
+                bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            length += digits;
+            return this;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.studentprocessor.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal zip writer that deflates entry data on several threads, the way pigz does: the data
+ * is cut into blocks, each block is deflated independently with the last 32 KB of the previous
+ * block as its dictionary and ends on a sync flush, and the compressed blocks are written in
+ * order. The result is one ordinary deflate stream per entry, readable by any zip reader, and
+ * nearly as small as a single-threaded deflate at the same level.
+ *
+ * Blocks are deflated on a shared executor (the xlsxDeflateExecutor bean), so concurrent
+ * writers together never run more deflate threads than it has. Without one, or when it is
+ * saturated and runs tasks on the caller, blocks are deflated on the writing thread. A block the
+ * executor rejects or cancels (it is shutting down) fails the write with an IOException.
+ *
+ * Level 0 writes stored deflate blocks (no compression, just framing), the fastest option when
+ * file size doesn't matter. Sizes and CRCs go into data descriptors since entries are streamed.
+ * Zip64 is not supported, so entries and the archive must stay below 4 GB.
+ */
+class ParallelDeflateZipOutputStream extends OutputStream {
+
+    static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final long MAX_ZIP32 = 0xFFFFFFFFL;
+    // General purpose flags: sizes in data descriptor, UTF-8 names
+    private static final int FLAGS = 0x0808;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int VERSION = 20;
+    // Blocks in flight per stream, bounding its memory use whatever the executor's size
+    private static final int MAX_PENDING_BLOCKS = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final CountingOutputStream out;
+    private final int level;
+    private final Executor deflaters; // null deflates on the calling thread
+    private final int dosTime;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+
+    private Entry current;
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private byte[] previousBlock;
+    private boolean closed;
+
+    /**
+     * @param level     deflate level 0-9; 0 stores the data uncompressed
+     * @param deflaters executor shared by all streams for deflating blocks; null deflates inline
+     */
+    ParallelDeflateZipOutputStream(OutputStream out, int level, Executor deflaters) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Deflate level must be between 0 and 9: " + level);
+        }
+        this.out = new CountingOutputStream(out);
+        this.level = level;
+        this.deflaters = deflaters;
+        this.dosTime = dosTime(LocalDateTime.now());
+    }
+
+    void putNextEntry(String name) throws IOException {
+        if (current != null) {
+            closeEntry();
+        }
+        current = new Entry(name, out.count);
+        crc.reset();
+        previousBlock = null;
+        blockLength = 0;
+
+        byte[] nameBytes = current.nameBytes;
+        writeInt(0x04034b50);
+        writeShort(VERSION);
+        writeShort(FLAGS);
+        writeShort(METHOD_DEFLATED);
+        writeInt(dosTime);
+        writeInt(0); // crc, compressed and uncompressed size follow in the data descriptor
+        writeInt(0);
+        writeInt(0);
+        writeShort(nameBytes.length);
+        writeShort(0);
+        out.write(nameBytes);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (current == null) {
+            throw new IOException("No current zip entry");
+        }
+        crc.update(b, off, len);
+        current.size += len;
+        while (len > 0) {
+            int n = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == BLOCK_SIZE) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    void closeEntry() throws IOException {
+        if (current == null) {
+            return;
+        }
+        submitBlock(true);
+        while (!pending.isEmpty()) {
+            writeBlock(pending.poll());
+        }
+
+        current.crc = crc.getValue();
+        current.compressedSize = out.count - current.offset - 30 - current.nameBytes.length;
+        if (current.size > MAX_ZIP32 || current.compressedSize > MAX_ZIP32) {
+            throw new ZipException("Zip entry " + current.name + " exceeds 4 GB, which needs Zip64");
+        }
+        writeInt(0x08074b50);
+        writeInt(current.crc);
+        writeInt(current.compressedSize);
+        writeInt(current.size);
+
+        entries.add(current);
+        current = null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            closeEntry();
+            writeCentralDirectory();
+            out.flush();
+        } finally {
+            // Blocks still queued after a failure are dropped; the shared executor stays up
+            cancelPending();
+            out.close();
+        }
+    }
+
+    /**
+     * Gives up on the archive after a failure: queued blocks are cancelled and the stream is
+     * closed without finishing the current entry or writing the central directory, so a reader
+     * sees a broken zip rather than a complete-looking one with data missing.
+     */
+    void abort() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = null;
+        try {
+            cancelPending();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void cancelPending() {
+        for (Future<byte[]> block : pending) {
+            block.cancel(false);
+        }
+        pending.clear();
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        byte[] data = block;
+        int length = blockLength;
+        byte[] dictionary = previousBlock;
+
+        if (deflaters == null) {
+            writeBytes(deflateBlock(data, length, dictionary, level, last));
+        } else {
+            FutureTask<byte[]> task = new FutureTask<>(() -> deflateBlock(data, length, dictionary, level, last));
+            try {
+                deflaters.execute(task);
+            } catch (RejectedExecutionException e) {
+                throw new IOException("Deflate executor rejected a block, is the application shutting down?", e);
+            }
+            pending.add(task);
+            // Keep only a bounded number of blocks in flight
+            while (pending.size() > MAX_PENDING_BLOCKS || (!pending.isEmpty() && pending.peek().isDone())) {
+                writeBlock(pending.poll());
+            }
+        }
+
+        // Blocks are handed to the deflaters, so every block gets a fresh buffer
+        previousBlock = last ? null : data;
+        block = last ? block : new byte[BLOCK_SIZE];
+        blockLength = 0;
+    }
+
+    // Raw deflate of one block, primed with the tail of the previous block
+    private static byte[] deflateBlock(byte[] data, int length, byte[] dictionary, int level, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(data, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] buffer = new byte[length + (length >> 3) + 64];
+            while (true) {
+                int n = deflater.deflate(buffer, 0, buffer.length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                compressed.write(buffer, 0, n);
+                if (last ? deflater.finished() : n < buffer.length) {
+                    return compressed.toByteArray();
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeBlock(Future<byte[]> block) throws IOException {
+        try {
+            writeBytes(block.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException("Deflating block failed", cause);
+        } catch (CancellationException e) {
+            // Queued blocks are cancelled when the executor shuts down
+            throw new IOException("Deflating block was cancelled", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compression interrupted");
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.write(bytes);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long start = out.count;
+        for (Entry entry : entries) {
+            writeInt(0x02014b50);
+            writeShort(VERSION);
+            writeShort(VERSION);
+            writeShort(FLAGS);
+            writeShort(METHOD_DEFLATED);
+            writeInt(dosTime);
+            writeInt(entry.crc);
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+            writeShort(entry.nameBytes.length);
+            writeShort(0); // extra field
+            writeShort(0); // comment
+            writeShort(0); // disk number
+            writeShort(0); // internal attributes
+            writeInt(0);   // external attributes
+            writeInt(entry.offset);
+            out.write(entry.nameBytes);
+        }
+        long size = out.count - start;
+        if (start > MAX_ZIP32 || entries.size() > 0xFFFF) {
+            throw new ZipException("Zip archive exceeds 4 GB or 65535 entries, which needs Zip64");
+        }
+
+        writeInt(0x06054b50);
+        writeShort(0);
+        writeShort(0);
+        writeShort(entries.size());
+        writeShort(entries.size());
+        writeInt(size);
+        writeInt(start);
+        writeShort(0);
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private static int dosTime(LocalDateTime time) {
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+                | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    private static class Entry {
+        final String name;
+        final byte[] nameBytes;
+        final long offset;
+        long size;
+        long compressedSize;
+        long crc;
+
+        Entry(String name, long offset) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.offset = offset;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
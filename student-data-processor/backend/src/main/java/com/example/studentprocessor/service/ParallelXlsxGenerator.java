@@ -0,0 +1,159 @@
+package com.example.studentprocessor.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+
+/**
+ * Generates a synthetic student workbook on several cores.
+ *
+ * The row range is cut into chunks of at most CHUNK_ROWS rows that never cross a sheet boundary,
+ * and each chunk gets its own SplittableRandom split from the seed in chunk order. Workers encode
+ * chunks to temp files while the calling thread appends finished chunks to the workbook in order,
+ * rolling over to a new sheet at the xlsx row limit. Because the chunk layout and RNGs depend only
+ * on the record count and seed, a given seed always produces the same rows for any number of
+ * workers.
+ */
+class ParallelXlsxGenerator {
+
+    static final int CHUNK_ROWS = 65_536;
+    // Rows between progress updates and cancellation checks
+    static final int CHECKPOINT_ROWS = 4096;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final int parallelism;
+    private final StudentDataSynthesizer synthesizer;
+    private final BackgroundJob job;
+    private int compressionLevel = StreamingXlsxWriter.DEFAULT_COMPRESSION_LEVEL;
+    private Executor deflaters;
+
+    // job may be null; when set it receives progress and can cancel the generation
+    ParallelXlsxGenerator(int parallelism, StudentDataSynthesizer synthesizer, BackgroundJob job) {
+        this.parallelism = Math.max(1, parallelism);
+        this.synthesizer = synthesizer;
+        this.job = job;
+    }
+
+    // Zip compression of the workbook, see StreamingXlsxWriter.open
+    ParallelXlsxGenerator withCompression(int compressionLevel, Executor deflaters) {
+        this.compressionLevel = compressionLevel;
+        this.deflaters = deflaters;
+        return this;
+    }
+
+    void generate(Path target, int recordCount, long seed) throws IOException {
+        List<Chunk> chunks = planChunks(recordCount, new SplittableRandom(seed));
+        // Chunks encoded ahead of the stitcher, bounding the temp files on disk
+        int window = parallelism * 2;
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        Deque<Future<Path>> pending = new ArrayDeque<>();
+        List<Path> chunkFiles = new ArrayList<>();
+
+        try (StreamingXlsxWriter workbook = StreamingXlsxWriter.open(target, "Students",
+                StudentDataSynthesizer.HEADERS, recordCount, compressionLevel, deflaters)) {
+            int submitted = 0;
+            for (Chunk chunk : chunks) {
+                while (submitted < chunks.size() && submitted < chunk.index + window) {
+                    Chunk next = chunks.get(submitted++);
+                    Path chunkFile = Files.createTempFile(target.getParent(), "chunk-", ".xml");
+                    chunkFiles.add(chunkFile);
+                    pending.add(workers.submit(() -> writeChunk(chunkFile, next, recordCount)));
+                }
+
+                Path chunkFile = await(pending.poll());
+                workbook.appendEncodedRows(chunkFile, chunk.rows());
+                Files.deleteIfExists(chunkFile);
+            }
+            System.out.printf("Generated %,d rows in %d chunks on %d workers, %d sheet(s)%n",
+                    recordCount, chunks.size(), parallelism, workbook.getSheetCount());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        } finally {
+            workers.shutdownNow();
+            for (Path chunkFile : chunkFiles) {
+                Files.deleteIfExists(chunkFile);
+            }
+        }
+    }
+
+    // Splits every sheet's rows into chunks; RNGs are split in chunk order. The CSV generator uses
+    // the same plan so a seed gives the same rows in every format.
+    static List<Chunk> planChunks(int recordCount, SplittableRandom root) {
+        List<Chunk> chunks = new ArrayList<>();
+        long firstPositionOfSheet = 1;
+        while (firstPositionOfSheet <= recordCount) {
+            long lastPositionOfSheet = Math.min(firstPositionOfSheet + StreamingXlsxWriter.DATA_ROWS_PER_SHEET - 1, recordCount);
+            for (long firstPosition = firstPositionOfSheet; firstPosition <= lastPositionOfSheet; firstPosition += CHUNK_ROWS) {
+                long lastPosition = Math.min(firstPosition + CHUNK_ROWS - 1, lastPositionOfSheet);
+                // Row 1 of each sheet is the header
+                long firstSheetRow = firstPosition - firstPositionOfSheet + 2;
+                chunks.add(new Chunk(chunks.size(), firstPosition, lastPosition, firstSheetRow, root.split()));
+            }
+            firstPositionOfSheet = lastPositionOfSheet + 1;
+        }
+        return chunks;
+    }
+
+    private Path writeChunk(Path chunkFile, Chunk chunk, int recordCount) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(chunkFile), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            SheetXmlWriter sheet = new SheetXmlWriter(out, chunk.firstSheetRow);
+            StudentDataSynthesizer.Row row = new StudentDataSynthesizer.Row();
+            // Row positions are 1-based like sequential IDs; the synthesizer works on 0-based indexes
+            for (long position = chunk.firstPosition; position <= chunk.lastPosition; position++) {
+                synthesizer.next(row, position - 1, recordCount, chunk.random);
+                StudentDataSynthesizer.writeRow(sheet, row);
+                if (job != null && (position - chunk.firstPosition + 1) % CHECKPOINT_ROWS == 0) {
+                    job.checkpoint(CHECKPOINT_ROWS);
+                }
+            }
+            if (job != null) {
+                job.checkpoint(chunk.rows() % CHECKPOINT_ROWS);
+            }
+        }
+        return chunkFile;
+    }
+
+    private static Path await(Future<Path> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException("Chunk generation failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Generation interrupted");
+        }
+    }
+
+    static class Chunk {
+        final int index;
+        final long firstPosition;
+        final long lastPosition;
+        final long firstSheetRow;
+        final SplittableRandom random;
+
+        Chunk(int index, long firstPosition, long lastPosition, long firstSheetRow, SplittableRandom random) {
+            this.index = index;
+            this.firstPosition = firstPosition;
+            this.lastPosition = lastPosition;
+            this.firstSheetRow = firstSheetRow;
+            this.random = random;
+        }
+
+        long rows() {
+            return lastPosition - firstPosition + 1;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.studentprocessor.service;
+
+import com.github.luben.zstd.Zstd;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes converted rows as a Parquet file, so analytics tools can load them without parsing CSV.
+ * The file layout and its Thrift compact metadata are written here directly instead of pulling
+ * in parquet-hadoop; pages are compressed with zstd-jni, which csv.zst already uses.
+ *
+ * Column types follow the header: studentId is INT64, score INT32, DOB a DATE, anything else a
+ * UTF-8 string. Every column is optional, and empty cells or values a typed column can't parse
+ * are written as nulls (counted in the log). Rows are buffered per column and written as one
+ * row group, with one data page per column, every ROW_GROUP_ROWS rows, so memory stays bounded.
+ */
+public class ParquetConversionSink implements ConversionSink {
+
+    static final int ROW_GROUP_ROWS = 256 * 1024;
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final int ZSTD_LEVEL = 3;
+
+    // Parquet enum values from parquet.thrift
+    private static final int TYPE_INT32 = 1;
+    private static final int TYPE_INT64 = 2;
+    private static final int TYPE_BYTE_ARRAY = 6;
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_DATE = 6;
+    private static final int REPETITION_OPTIONAL = 1;
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_RLE = 3;
+    private static final int CODEC_ZSTD = 6;
+    private static final int PAGE_DATA = 0;
+
+    private final PositionOutputStream out;
+    private final List<Column> columns = new ArrayList<>();
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private int rowsInGroup;
+    private long totalRows;
+    private long nullsWritten;
+
+    public ParquetConversionSink(OutputStream out) throws IOException {
+        this.out = new PositionOutputStream(out);
+        this.out.write(MAGIC);
+    }
+
+    @Override
+    public void writeHeader(String[] headers) {
+        for (String header : headers) {
+            columns.add(new Column(header));
+        }
+    }
+
+    @Override
+    public void onRow(String[] values) throws IOException {
+        if (columns.isEmpty()) {
+            throw new IllegalStateException("Parquet header must be written before rows");
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.get(i).add(i < values.length ? values[i] : null)) {
+                nullsWritten++;
+            }
+        }
+        rowsInGroup++;
+        if (rowsInGroup == ROW_GROUP_ROWS) {
+            writeRowGroup();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsInGroup > 0) {
+                writeRowGroup();
+            }
+            byte[] footer = fileMetaData();
+            out.write(footer);
+            writeIntLE(out, footer.length);
+            out.write(MAGIC);
+            if (nullsWritten > 0) {
+                System.out.printf("Parquet output: %,d empty or unparseable values written as null%n", nullsWritten);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeRowGroup() throws IOException {
+        RowGroup group = new RowGroup(rowsInGroup);
+        for (Column column : columns) {
+            group.chunks.add(column.writePage(out, rowsInGroup));
+        }
+        rowGroups.add(group);
+        totalRows += rowsInGroup;
+        rowsInGroup = 0;
+    }
+
+    private byte[] fileMetaData() {
+        ThriftCompactWriter meta = new ThriftCompactWriter();
+        meta.i32(1, 1); // format version
+
+        meta.beginList(2, ThriftCompactWriter.STRUCT, columns.size() + 1);
+        meta.beginStructElement();
+        meta.string(4, "schema");
+        meta.i32(5, columns.size());
+        meta.endStruct();
+        for (Column column : columns) {
+            meta.beginStructElement();
+            meta.i32(1, column.type);
+            meta.i32(3, REPETITION_OPTIONAL);
+            meta.string(4, column.name);
+            if (column.convertedType >= 0) {
+                meta.i32(6, column.convertedType);
+            }
+            meta.endStruct();
+        }
+
+        meta.i64(3, totalRows);
+
+        meta.beginList(4, ThriftCompactWriter.STRUCT, rowGroups.size());
+        for (RowGroup group : rowGroups) {
+            meta.beginStructElement();
+            meta.beginList(1, ThriftCompactWriter.STRUCT, group.chunks.size());
+            long totalByteSize = 0;
+            for (int i = 0; i < group.chunks.size(); i++) {
+                ChunkInfo chunk = group.chunks.get(i);
+                Column column = columns.get(i);
+                totalByteSize += chunk.uncompressedSize;
+
+                meta.beginStructElement();
+                meta.i64(2, chunk.offset); // file_offset
+                meta.beginStruct(3); // ColumnMetaData
+                meta.i32(1, column.type);
+                meta.beginList(2, ThriftCompactWriter.I32, 2);
+                meta.i32Element(ENCODING_PLAIN);
+                meta.i32Element(ENCODING_RLE);
+                meta.beginList(3, ThriftCompactWriter.BINARY, 1);
+                meta.stringElement(column.name);
+                meta.i32(4, CODEC_ZSTD);
+                meta.i64(5, chunk.values);
+                meta.i64(6, chunk.uncompressedSize);
+                meta.i64(7, chunk.compressedSize);
+                meta.i64(9, chunk.offset); // data_page_offset
+                meta.endStruct();
+                meta.endStruct();
+            }
+            meta.i64(2, totalByteSize);
+            meta.i64(3, group.rows);
+            meta.endStruct();
+        }
+
+        meta.string(6, "student-data-processor");
+        return meta.finish();
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        out.write((value >>> 16) & 0xFF);
+        out.write((value >>> 24) & 0xFF);
+    }
+
+    private static void writeLongLE(OutputStream out, long value) throws IOException {
+        writeIntLE(out, (int) value);
+        writeIntLE(out, (int) (value >>> 32));
+    }
+
+    // Values of one column for the current row group, PLAIN encoded, with a bit per row for non-null
+    private static final class Column {
+        final String name;
+        final int type;
+        final int convertedType; // -1 for none
+        private final ByteArrayOutputStream values = new ByteArrayOutputStream(64 * 1024);
+        private final byte[] present = new byte[ROW_GROUP_ROWS / 8];
+        private int rows;
+
+        Column(String name) {
+            this.name = name;
+            switch (name) {
+                case "studentId":
+                    type = TYPE_INT64;
+                    convertedType = -1;
+                    break;
+                case "score":
+                    type = TYPE_INT32;
+                    convertedType = -1;
+                    break;
+                case "DOB":
+                    type = TYPE_INT32;
+                    convertedType = CONVERTED_DATE;
+                    break;
+                default:
+                    type = TYPE_BYTE_ARRAY;
+                    convertedType = CONVERTED_UTF8;
+            }
+        }
+
+        // Returns false when the value was written as null
+        boolean add(String raw) throws IOException {
+            int row = rows++;
+            if (raw == null || raw.isEmpty()) {
+                return false;
+            }
+            try {
+                switch (type) {
+                    case TYPE_INT64:
+                        writeLongLE(values, Long.parseLong(raw.trim()));
+                        break;
+                    case TYPE_INT32:
+                        writeIntLE(values, convertedType == CONVERTED_DATE
+                                ? (int) LocalDate.parse(raw.trim()).toEpochDay()
+                                : Integer.parseInt(raw.trim()));
+                        break;
+                    default:
+                        byte[] bytes = raw.getBytes(StandardCharsets.UTF_8);
+                        writeIntLE(values, bytes.length);
+                        values.write(bytes);
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                return false;
+            }
+            present[row >>> 3] |= (byte) (1 << (row & 7));
+            return true;
+        }
+
+        /**
+         * Writes the buffered rows as one zstd-compressed v1 data page and resets the buffers.
+         * Definition levels (1 = present) are a single bit-packed run of the RLE hybrid encoding,
+         * which for bit width 1 is exactly the present bitmap.
+         */
+        ChunkInfo writePage(PositionOutputStream out, int rowCount) throws IOException {
+            int bitmapBytes = (rowCount + 7) / 8;
+            ByteArrayOutputStream levels = new ByteArrayOutputStream(bitmapBytes + 8);
+            ThriftCompactWriter.writeVarint(levels, ((long) bitmapBytes << 1) | 1); // bitmapBytes groups of 8
+            levels.write(present, 0, bitmapBytes);
+
+            ByteArrayOutputStream page = new ByteArrayOutputStream(4 + levels.size() + values.size());
+            writeIntLE(page, levels.size());
+            levels.writeTo(page);
+            values.writeTo(page);
+            byte[] uncompressed = page.toByteArray();
+            byte[] compressed = Zstd.compress(uncompressed, ZSTD_LEVEL);
+
+            ThriftCompactWriter header = new ThriftCompactWriter();
+            header.i32(1, PAGE_DATA);
+            header.i32(2, uncompressed.length);
+            header.i32(3, compressed.length);
+            header.beginStruct(5); // DataPageHeader
+            header.i32(1, rowCount);
+            header.i32(2, ENCODING_PLAIN);
+            header.i32(3, ENCODING_RLE);
+            header.i32(4, ENCODING_RLE);
+            header.endStruct();
+            byte[] headerBytes = header.finish();
+
+            long offset = out.position;
+            out.write(headerBytes);
+            out.write(compressed);
+
+            values.reset();
+            Arrays.fill(present, 0, bitmapBytes, (byte) 0);
+            rows = 0;
+            return new ChunkInfo(offset, rowCount, headerBytes.length + (long) uncompressed.length,
+                    headerBytes.length + (long) compressed.length);
+        }
+    }
+
+    private static final class ChunkInfo {
+        final long offset;
+        final long values;
+        final long uncompressedSize;
+        final long compressedSize;
+
+        ChunkInfo(long offset, long values, long uncompressedSize, long compressedSize) {
+            this.offset = offset;
+            this.values = values;
+            this.uncompressedSize = uncompressedSize;
+            this.compressedSize = compressedSize;
+        }
+    }
+
+    private static final class RowGroup {
+        final long rows;
+        final List<ChunkInfo> chunks = new ArrayList<>();
+
+        RowGroup(long rows) {
+            this.rows = rows;
+        }
+    }
+
+    private static final class PositionOutputStream extends FilterOutputStream {
+        long position;
+
+        PositionOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+
+    /**
+     * The subset of the Thrift compact protocol Parquet metadata needs: i32/i64/string fields,
+     * nested structs and lists. Field ids are delta-encoded against the previous field of the
+     * same struct.
+     */
+    static final class ThriftCompactWriter {
+        static final int I32 = 5;
+        static final int I64 = 6;
+        static final int BINARY = 8;
+        static final int LIST = 9;
+        static final int STRUCT = 12;
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        private final int[] lastFieldIds = new int[16];
+        private int depth;
+
+        void i32(int fieldId, int value) {
+            fieldHeader(fieldId, I32);
+            i32Element(value);
+        }
+
+        void i64(int fieldId, long value) {
+            fieldHeader(fieldId, I64);
+            writeVarint(out, (value << 1) ^ (value >> 63));
+        }
+
+        void string(int fieldId, String value) {
+            fieldHeader(fieldId, BINARY);
+            stringElement(value);
+        }
+
+        void beginStruct(int fieldId) {
+            fieldHeader(fieldId, STRUCT);
+            beginStructElement();
+        }
+
+        void endStruct() {
+            out.write(0);
+            depth--;
+        }
+
+        void beginList(int fieldId, int elementType, int size) {
+            fieldHeader(fieldId, LIST);
+            if (size < 15) {
+                out.write(size << 4 | elementType);
+            } else {
+                out.write(0xF0 | elementType);
+                writeVarint(out, size);
+            }
+        }
+
+        void i32Element(int value) {
+            writeVarint(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        void stringElement(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        void beginStructElement() {
+            lastFieldIds[++depth] = 0;
+        }
+
+        // Ends the top-level struct and returns its encoding
+        byte[] finish() {
+            out.write(0);
+            return out.toByteArray();
+        }
+
+        private void fieldHeader(int fieldId, int type) {
+            int delta = fieldId - lastFieldIds[depth];
+            if (delta > 0 && delta <= 15) {
+                out.write(delta << 4 | type);
+            } else {
+                out.write(type);
+                writeVarint(out, ((fieldId << 1) ^ (fieldId >> 31)) & 0xFFFFFFFFL);
+            }
+            lastFieldIds[depth] = fieldId;
+        }
+
+        static void writeVarint(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
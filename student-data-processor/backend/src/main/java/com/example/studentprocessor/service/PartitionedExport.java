@@ -0,0 +1,284 @@
+package com.example.studentprocessor.service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs one export as several student_id range queries in parallel, each on its own connection,
+ * and hands the encoded parts back in studentId order.
+ *
+ * A leader connection opens a repeatable-read transaction and exports its snapshot with
+ * pg_export_snapshot(); every worker transaction imports it with SET TRANSACTION SNAPSHOT, so
+ * all parts read the same data even while students are loaded or deleted. The leader counts
+ * the rows and looks up the first student_id of every part in that snapshot, so parts are equal
+ * in size and never cross an xlsx sheet boundary. Its transaction stays open until the export
+ * is done, which keeps the snapshot importable.
+ *
+ * Workers encode their part to a temp file; the calling thread consumes finished parts in order.
+ */
+class PartitionedExport {
+
+    // One part of the export: rows at positions firstPosition..lastPosition (1-based) of the
+    // ordered result, i.e. student_id >= firstStudentId and below the next part's first ID
+    static class Part {
+        final int index;
+        final long firstPosition;
+        final long lastPosition;
+        final long firstStudentId;
+        final Long nextStudentId; // null for the last part
+        final long firstSheetRow;
+
+        Part(int index, long firstPosition, long lastPosition, long firstStudentId, Long nextStudentId) {
+            this.index = index;
+            this.firstPosition = firstPosition;
+            this.lastPosition = lastPosition;
+            this.firstStudentId = firstStudentId;
+            this.nextStudentId = nextStudentId;
+            // Row 1 of each sheet is the header
+            this.firstSheetRow = (firstPosition - 1) % StreamingXlsxWriter.DATA_ROWS_PER_SHEET + 2;
+        }
+
+        long rows() {
+            return lastPosition - firstPosition + 1;
+        }
+    }
+
+    // Feeds the rows of a part to a handler
+    @FunctionalInterface
+    interface PartRows {
+        void forEach(ReportService.ExportRowHandler handler) throws IOException;
+    }
+
+    // Encodes one part into its temp file on a worker thread; the result is passed to the consumer
+    @FunctionalInterface
+    interface PartEncoder<T> {
+        T encode(Part part, Path partFile, PartRows rows) throws IOException;
+    }
+
+    // Receives the encoded parts on the calling thread, in order
+    @FunctionalInterface
+    interface PartConsumer<T> {
+        void accept(Part part, Path partFile, T encoded) throws IOException;
+    }
+
+    private final DataSource dataSource;
+    private final int partitions;
+    private final int fetchSize;
+
+    PartitionedExport(DataSource dataSource, int partitions, int fetchSize) {
+        this.dataSource = dataSource;
+        this.partitions = Math.max(1, partitions);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Exports all students (or those of className) and returns the number of rows. Returns -1
+     * without calling the consumer if the result is too small to be worth partitioning.
+     */
+    <T> long run(String className, long minRows, PartEncoder<T> encoder, PartConsumer<T> consumer) throws IOException {
+        try (Connection leader = dataSource.getConnection()) {
+            beginSnapshotTransaction(leader);
+            try {
+                String snapshot = queryString(leader, "SELECT pg_export_snapshot()");
+                long total = countRows(leader, className);
+                if (total < minRows) {
+                    return -1;
+                }
+
+                List<Part> parts = planParts(leader, className, total);
+                System.out.printf("Partitioned export: %,d rows in %d parts on %d workers, snapshot %s%n",
+                        total, parts.size(), partitions, snapshot);
+                runParts(parts, snapshot, className, encoder, consumer);
+                return total;
+            } finally {
+                leader.rollback();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Partitioned export failed: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> void runParts(List<Part> parts, String snapshot, String className,
+                              PartEncoder<T> encoder, PartConsumer<T> consumer) throws IOException {
+        // Parts encoded ahead of the consumer, bounding the temp files on disk
+        int window = partitions * 2;
+        ExecutorService workers = Executors.newFixedThreadPool(partitions);
+        Deque<Future<T>> pending = new ArrayDeque<>();
+        List<Path> partFiles = new ArrayList<>();
+
+        try {
+            int submitted = 0;
+            for (Part part : parts) {
+                while (submitted < parts.size() && submitted < part.index + window) {
+                    Part next = parts.get(submitted++);
+                    Path partFile = Files.createTempFile("export-part-", ".tmp");
+                    partFiles.add(partFile);
+                    pending.add(workers.submit(() -> encoder.encode(next, partFile,
+                            handler -> readPart(snapshot, className, next, handler))));
+                }
+
+                T encoded = await(pending.poll());
+                Path partFile = partFiles.get(part.index);
+                consumer.accept(part, partFile, encoded);
+                Files.deleteIfExists(partFile);
+            }
+        } finally {
+            workers.shutdownNow();
+            for (Path partFile : partFiles) {
+                Files.deleteIfExists(partFile);
+            }
+        }
+    }
+
+    // Reads one part through a cursor in a transaction that imports the leader's snapshot
+    private void readPart(String snapshot, String className, Part part, ReportService.ExportRowHandler handler)
+            throws IOException {
+        String sql = "SELECT " + StudentExportRow.COLUMNS + " FROM students WHERE student_id >= ?"
+                + (part.nextStudentId != null ? " AND student_id < ?" : "")
+                + (className != null ? " AND class_name = ?" : "") + " ORDER BY student_id";
+
+        try (Connection connection = dataSource.getConnection()) {
+            beginSnapshotTransaction(connection);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    // Snapshot IDs are generated by Postgres and contain only hex digits and dashes
+                    statement.execute("SET TRANSACTION SNAPSHOT '" + snapshot + "'");
+                }
+                try (PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    statement.setFetchSize(fetchSize);
+                    int parameter = 1;
+                    statement.setLong(parameter++, part.firstStudentId);
+                    if (part.nextStudentId != null) {
+                        statement.setLong(parameter++, part.nextStudentId);
+                    }
+                    if (className != null) {
+                        statement.setString(parameter, className);
+                    }
+                    long rows = 0;
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            handler.accept(StudentExportRow.MAPPER.mapRow(rs, 0));
+                            rows++;
+                        }
+                    }
+                    // Parts are planned in the same snapshot, so any difference is a bug
+                    if (rows != part.rows()) {
+                        throw new IllegalStateException("Export part " + part.index + " read " + rows
+                                + " rows, planned " + part.rows());
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Reading export part " + part.index + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cuts positions 1..total into parts of about total / partitions rows, split again at every
+     * sheet boundary, and looks up the first student_id of each part with one window query.
+     */
+    private List<Part> planParts(Connection connection, String className, long total) throws SQLException {
+        long partRows = Math.max(1, (total + partitions - 1) / partitions);
+        List<long[]> ranges = new ArrayList<>();
+        long firstPositionOfSheet = 1;
+        while (firstPositionOfSheet <= total) {
+            long lastPositionOfSheet = Math.min(firstPositionOfSheet + StreamingXlsxWriter.DATA_ROWS_PER_SHEET - 1, total);
+            long firstPosition = firstPositionOfSheet;
+            while (firstPosition <= lastPositionOfSheet) {
+                // Parts follow the global grid so sheet boundaries only split the part they fall in
+                long gridEnd = ((firstPosition - 1) / partRows + 1) * partRows;
+                long lastPosition = Math.min(gridEnd, lastPositionOfSheet);
+                ranges.add(new long[]{firstPosition, lastPosition});
+                firstPosition = lastPosition + 1;
+            }
+            firstPositionOfSheet = lastPositionOfSheet + 1;
+        }
+
+        Long[] firstPositions = new Long[ranges.size()];
+        for (int i = 0; i < firstPositions.length; i++) {
+            firstPositions[i] = ranges.get(i)[0];
+        }
+        long[] firstIds = new long[firstPositions.length];
+        String sql = "SELECT position, student_id FROM (SELECT student_id, row_number() OVER (ORDER BY student_id) AS position"
+                + " FROM students" + (className != null ? " WHERE class_name = ?" : "") + ") numbered"
+                + " WHERE position = ANY (?) ORDER BY position";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            if (className != null) {
+                statement.setString(parameter++, className);
+            }
+            statement.setArray(parameter, connection.createArrayOf("bigint", firstPositions));
+            try (ResultSet rs = statement.executeQuery()) {
+                int i = 0;
+                while (rs.next()) {
+                    firstIds[i++] = rs.getLong(2);
+                }
+                if (i != firstIds.length) {
+                    throw new SQLException("Expected " + firstIds.length + " part boundaries, found " + i);
+                }
+            }
+        }
+
+        List<Part> parts = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            Long next = i + 1 < firstIds.length ? firstIds[i + 1] : null;
+            parts.add(new Part(i, ranges.get(i)[0], ranges.get(i)[1], firstIds[i], next));
+        }
+        return parts;
+    }
+
+    private static void beginSnapshotTransaction(Connection connection) throws SQLException {
+        // Snapshots can only be exported from and imported into repeatable read or serializable
+        // transactions; the characteristics are set before autocommit is turned off so they
+        // apply to the transaction the next statement opens
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        connection.setReadOnly(true);
+        connection.setAutoCommit(false);
+    }
+
+    private static long countRows(Connection connection, String className) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM students" + (className != null ? " WHERE class_name = ?" : "");
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (className != null) {
+                statement.setString(1, className);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static String queryString(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static <T> T await(Future<T> part) throws IOException {
+        try {
+            return part.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException("Export part failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export interrupted");
+        }
+    }
+}
@@ -5,37 +5,100 @@ import com.example.studentprocessor.repository.StudentRepository;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
 import com.opencsv.CSVWriter;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class ReportService {
 
     private final StudentRepository studentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ClassScoreIndex classScoreIndex;
+    private final Semaphore partitionConnectionPermits;
+    private final Executor xlsxDeflateExecutor;
 
     @Value("${app.file.excel-output-path:C:/var/log/applications/API/dataprocessing/}")
     private String outputPath;
 
+    // Deflate level of streamed xlsx exports (0 stores them uncompressed)
+    @Value("${app.xlsx.compression-level:1}")
+    private int compressionLevel = StreamingXlsxWriter.DEFAULT_COMPRESSION_LEVEL;
+
+    // Exports read all rows through one JDBC cursor instead of keyset batches of entities
+    @Value("${app.export.cursor-streaming:true}")
+    private boolean cursorStreaming = true;
+
+    // Rows fetched per round trip by the export cursor
+    @Value("${app.export.fetch-size:5000}")
+    private int exportFetchSize = 5000;
+
+    // Upper bound for the partitions param; each partition holds a pooled connection, plus one for the snapshot
+    @Value("${app.export.max-partitions:8}")
+    private int maxPartitions = 8;
+
+    // Smaller exports ignore the partitions param, the extra queries and part files cost more than they save
+    @Value("${app.export.partition-min-rows:100000}")
+    private long partitionMinRows = 100000;
+
+    private static final String[] REPORT_HEADERS = {"Student ID", "First Name", "Last Name", "Date of Birth", "Class", "Score"};
+
+    // Rows held back at the start of an Excel export to estimate the column widths from
+    private static final int EXCEL_WIDTH_SAMPLE_ROWS = 1000;
+
+    // Rows added to the PDF table between flushes, a few pages' worth
+    private static final int PDF_FLUSH_ROWS = 200;
+
+    // Fonts are looked up once and shared by every PDF export
+    private static final Font PDF_TITLE_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
+    private static final Font PDF_HEADER_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
+    private static final Font PDF_DATA_FONT = FontFactory.getFont(FontFactory.HELVETICA, 9);
+
     @Autowired
-    public ReportService(StudentRepository studentRepository) {
+    public ReportService(StudentRepository studentRepository, JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                         ClassScoreIndex classScoreIndex,
+                         @Qualifier("partitionConnectionPermits") Semaphore partitionConnectionPermits,
+                         @Qualifier("xlsxDeflateExecutor") Executor xlsxDeflateExecutor) {
         this.studentRepository = studentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.eventPublisher = eventPublisher;
+        this.classScoreIndex = classScoreIndex;
+        this.partitionConnectionPermits = partitionConnectionPermits;
+        this.xlsxDeflateExecutor = xlsxDeflateExecutor;
     }
 
     // 1. Pagination
@@ -85,209 +148,520 @@ public class ReportService {
         }
     }
 
+    /**
+     * Next batch of an export in studentId order: up to size students with an ID above
+     * afterStudentId. Seeks through the student_id index instead of counting and skipping
+     * rows, so every batch costs the same however far into the export it is.
+     */
+    List<Student> getExportBatch(Long studentId, String className, long afterStudentId, int size) {
+        if (studentId != null) {
+            Student student = findByStudentId(studentId);
+            return student.getStudentId() > afterStudentId ? List.of(student) : List.of();
+        } else if (className != null) {
+            return studentRepository.findByClassNameAndStudentIdGreaterThanOrderByStudentIdAsc(
+                    className, afterStudentId, Limit.of(size));
+        } else {
+            return studentRepository.findByStudentIdGreaterThanOrderByStudentIdAsc(afterStudentId, Limit.of(size));
+        }
+    }
+
+    private static long lastStudentId(List<Student> batch, long previous) {
+        return batch.isEmpty() ? previous : batch.get(batch.size() - 1).getStudentId();
+    }
+
+    // Receives the rows of an export in studentId order
+    @FunctionalInterface
+    interface ExportRowHandler {
+        void accept(StudentExportRow row) throws IOException;
+    }
+
+    /**
+     * Feeds every row of an export to the handler. With cursor streaming enabled this is one
+     * read-only query whose rows are fetched through a server-side cursor, fetchSize at a time,
+     * and mapped without entities, so memory stays flat and the export reads one snapshot.
+     * Otherwise rows are read in keyset batches of batchSize.
+     */
+    void forEachExportRow(Long studentId, String className, int batchSize, ExportRowHandler handler) throws IOException {
+        if (studentId != null) {
+            handler.accept(StudentExportRow.of(findByStudentId(studentId)));
+            return;
+        }
+
+        if (cursorStreaming) {
+            streamExportRows(className, handler);
+            return;
+        }
+
+        long lastId = Long.MIN_VALUE;
+        List<Student> students;
+        do {
+            students = getExportBatch(null, className, lastId, batchSize);
+            for (Student student : students) {
+                handler.accept(StudentExportRow.of(student));
+            }
+            lastId = lastStudentId(students, lastId);
+        } while (students.size() == batchSize);
+    }
+
+    private void streamExportRows(String className, ExportRowHandler handler) throws IOException {
+        String sql = "SELECT " + StudentExportRow.COLUMNS + " FROM students"
+                + (className != null ? " WHERE class_name = ?" : "") + " ORDER BY student_id";
+        try {
+            // Postgres only uses a cursor for fetchSize inside a transaction (autocommit off)
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(exportFetchSize);
+                if (className != null) {
+                    statement.setString(1, className);
+                }
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    handler.accept(StudentExportRow.MAPPER.mapRow(rs, 0));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Formats the reports can be exported in
+    public enum ExportFormat {
+        EXCEL("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+        CSV("csv", "text/csv"),
+        PDF("pdf", "application/pdf");
+
+        private final String extension;
+        private final String contentType;
+
+        ExportFormat(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        // Accepts the format name or its extension ("excel" or "xlsx", "csv", "pdf")
+        public static ExportFormat fromParam(String value) {
+            for (ExportFormat format : values()) {
+                if (format.name().equalsIgnoreCase(value) || format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format '" + value + "'. Use excel, csv or pdf");
+        }
+    }
+
+    public String getOutputPath() {
+        return outputPath;
+    }
+
+    public String newReportFileName(ExportFormat format) {
+        // Milliseconds, since export jobs with different filters can start in the same second
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS"));
+        return String.format("student_report_%s.%s", timestamp, format.getExtension());
+    }
+
     public String exportToExcel(Long studentId, String className) throws IOException {
+        return exportToExcel(studentId, className, 1);
+    }
+
+    public String exportToExcel(Long studentId, String className, int partitions) throws IOException {
         System.out.println("=== EXCEL EXPORT STARTED ===");
-        System.out.println("Using OPTIMIZED batch processing (1000 records per batch)");
+        return exportToFile(ExportFormat.EXCEL, studentId, className, partitions);
+    }
+
+    public String exportToCsv(Long studentId, String className) throws IOException {
+        return exportToCsv(studentId, className, 1);
+    }
+
+    public String exportToCsv(Long studentId, String className, int partitions) throws IOException {
+        System.out.println("=== CSV EXPORT STARTED ===");
+        return exportToFile(ExportFormat.CSV, studentId, className, partitions);
+    }
 
+    public String exportToPdf(Long studentId, String className) throws IOException {
+        System.out.println("=== PDF EXPORT STARTED ===");
+        return exportToFile(ExportFormat.PDF, studentId, className, 1);
+    }
+
+    // Writes the report into the output directory and returns its file name
+    private String exportToFile(ExportFormat format, Long studentId, String className, int partitions) throws IOException {
         // Create output directory if it doesn't exist
         Path outputDir = Paths.get(outputPath);
         if (!Files.exists(outputDir)) {
             Files.createDirectories(outputDir);
         }
 
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String fileName = String.format("student_report_%s.xlsx", timestamp);
-        String fullPath = outputPath + fileName;
+        String fileName = newReportFileName(format);
+        Path file = outputDir.resolve(fileName);
 
-        // Use streaming for large datasets
-        try (FileOutputStream fileOut = new FileOutputStream(fullPath);
-             Workbook workbook = new XSSFWorkbook()) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            writeReport(format, out, studentId, className, partitions);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
 
-            Sheet sheet = workbook.createSheet("Student Report");
+        return fileName;
+    }
 
-            // Create header row
-            Row headerRow = sheet.createRow(0);
-            CellStyle headerStyle = createHeaderStyle(workbook);
+    /**
+     * Writes a report to the stream as its rows are read, e.g. straight into an HTTP response.
+     * The stream is flushed but left open.
+     */
+    public void writeReport(ExportFormat format, OutputStream out, Long studentId, String className) throws IOException {
+        writeReport(format, out, studentId, className, 1);
+    }
 
-            String[] headers = {"Student ID", "First Name", "Last Name", "Date of Birth", "Class", "Score"};
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
+    /**
+     * As above; with partitions > 1, CSV and Excel reports of all students or a class are read
+     * as that many student_id ranges in parallel from one database snapshot (see
+     * PartitionedExport). PDF reports, single students and small results ignore it.
+     *
+     * Partitioned exports share the partitionConnectionPermits: an export takes what is free up
+     * to its partitions plus the snapshot connection, runs with fewer partitions if that's less,
+     * and falls back to the single cursor when fewer than two workers' worth are free.
+     */
+    public void writeReport(ExportFormat format, OutputStream out, Long studentId, String className,
+                            int partitions) throws IOException {
+        int workers = Math.min(partitions, maxPartitions);
+        if (workers > 1 && studentId == null && format != ExportFormat.PDF) {
+            int connections = acquirePartitionConnections(workers + 1);
+            try {
+                if (connections - 1 < 2) {
+                    System.out.println("Partition connections in use by other exports, exporting on one cursor");
+                } else if (writePartitioned(format, out, className, connections - 1)) {
+                    out.flush();
+                    return;
+                }
+            } finally {
+                partitionConnectionPermits.release(connections);
             }
+        }
 
-            // Process data in batches to reduce memory usage
-            int batchSize = 1000;
-            int pageNumber = 0;
-            int rowNum = 1;
-            Page<Student> students;
-
-            do {
-                students = getStudentReports(studentId, className, pageNumber, batchSize, "studentId", "asc");
-                System.out.println("Excel: Processing batch " + (pageNumber + 1) + " with " + students.getContent().size() + " records");
-
-                for (Student student : students.getContent()) {
-                    Row row = sheet.createRow(rowNum++);
-                    row.createCell(0).setCellValue(student.getStudentId());
-                    row.createCell(1).setCellValue(student.getFirstName());
-                    row.createCell(2).setCellValue(student.getLastName());
-                    row.createCell(3).setCellValue(student.getDob().toString());
-                    row.createCell(4).setCellValue(student.getClassName());
-                    row.createCell(5).setCellValue(student.getScore());
+        switch (format) {
+            case EXCEL:
+                writeExcel(out, studentId, className);
+                break;
+            case CSV:
+                writeCsv(out, studentId, className);
+                break;
+            default:
+                try {
+                    writePdf(out, studentId, className);
+                } catch (DocumentException e) {
+                    throw new IOException("Error building PDF report", e);
                 }
+        }
+        out.flush();
+    }
+
+    private void writeExcel(OutputStream out, Long studentId, String className) throws IOException {
+        ExcelRowHandler excel = new ExcelRowHandler(out);
+        try {
+            forEachExportRow(studentId, className, 1000, excel);
+            excel.finish();
+        } catch (IOException | RuntimeException e) {
+            excel.abort();
+            throw e;
+        }
+    }
 
-                pageNumber++;
+    // Streams rows straight into the xlsx zip: no Row/Cell objects, no SXSSF temp file and no
+    // autosize pass. Only the first rows are held back, to size the columns before the sheet starts.
+    private class ExcelRowHandler implements ExportRowHandler {
+        private final OutputStream out;
+        private final List<StudentExportRow> sample = new ArrayList<>();
+        private final int[] maxLengths;
+        private StreamingXlsxWriter workbook;
+
+        ExcelRowHandler(OutputStream out) {
+            this.out = out;
+            this.maxLengths = headerLengths();
+        }
 
-                // Flush memory every 5 batches
-                if (pageNumber % 5 == 0) {
-                    System.gc(); // Suggest garbage collection
+        @Override
+        public void accept(StudentExportRow student) throws IOException {
+            if (workbook == null) {
+                measure(student);
+                sample.add(student);
+                if (sample.size() == EXCEL_WIDTH_SAMPLE_ROWS) {
+                    startWorkbook();
                 }
+                return;
+            }
+            writeRow(student);
+            if (workbook.getDataRowCount() % 100_000 == 0) {
+                System.out.println("Excel: Streamed " + workbook.getDataRowCount() + " records");
+            }
+        }
 
-            } while (students.hasNext());
+        private void measure(StudentExportRow student) {
+            measureExcelRow(maxLengths, student);
+        }
 
-            // Auto-size columns only for headers (more efficient)
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
+        private void startWorkbook() throws IOException {
+            workbook = openExcelReport(out, maxLengths);
+            for (StudentExportRow row : sample) {
+                writeRow(row);
             }
+            sample.clear();
+        }
 
-            workbook.write(fileOut);
+        private void writeRow(StudentExportRow student) throws IOException {
+            writeExcelRow(workbook, student);
         }
 
-        return fileName;
+        void finish() throws IOException {
+            if (workbook == null) {
+                startWorkbook();
+            }
+            System.out.println("Excel: Exported " + workbook.getDataRowCount() + " records");
+            workbook.close();
+        }
+
+        // Drops the workbook's pending blocks and leaves the output without a zip directory, so a
+        // failed export can't pass for a complete workbook
+        void abort() {
+            if (workbook != null) {
+                try {
+                    workbook.abort();
+                } catch (IOException | RuntimeException e) {
+                    // The export already failed; the caller reports the original error
+                }
+            }
+        }
     }
 
-    public String exportToCsv(Long studentId, String className) throws IOException {
-        System.out.println("=== CSV EXPORT STARTED ===");
-        System.out.println("Using OPTIMIZED batch processing (2000 records per batch)");
+    private static int[] headerLengths() {
+        int[] lengths = new int[REPORT_HEADERS.length];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = REPORT_HEADERS[i].length();
+        }
+        return lengths;
+    }
 
-        // Create output directory if it doesn't exist
-        Path outputDir = Paths.get(outputPath);
-        if (!Files.exists(outputDir)) {
-            Files.createDirectories(outputDir);
+    private static void measureExcelRow(int[] maxLengths, StudentExportRow student) {
+        maxLengths[0] = Math.max(maxLengths[0], Long.toString(student.studentId).length());
+        maxLengths[1] = Math.max(maxLengths[1], student.firstName.length());
+        maxLengths[2] = Math.max(maxLengths[2], student.lastName.length());
+        maxLengths[3] = Math.max(maxLengths[3], student.dob.length());
+        maxLengths[4] = Math.max(maxLengths[4], student.className.length());
+        maxLengths[5] = Math.max(maxLengths[5], Integer.toString(student.score).length());
+    }
+
+    private StreamingXlsxWriter openExcelReport(OutputStream out, int[] maxLengths) throws IOException {
+        double[] widths = new double[maxLengths.length];
+        for (int i = 0; i < widths.length; i++) {
+            // Padding for the cell margins and the bold header, capped like Excel's autofit
+            widths[i] = Math.min(maxLengths[i] + 3, 60);
         }
+        return StreamingXlsxWriter.open(StreamUtils.nonClosing(out), "Student Report", REPORT_HEADERS, -1,
+                compressionLevel, xlsxDeflateExecutor, widths);
+    }
 
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String fileName = String.format("student_report_%s.csv", timestamp);
-        String fullPath = outputPath + fileName;
+    private static void writeExcelRow(SheetXmlWriter sheet, StudentExportRow student) throws IOException {
+        sheet.startRow();
+        sheet.numberCell(student.studentId);
+        sheet.stringCell(student.firstName);
+        sheet.stringCell(student.lastName);
+        sheet.stringCell(student.dob);
+        sheet.stringCell(student.className);
+        sheet.numberCell(student.score);
+        sheet.endRow();
+    }
 
-        // Use buffered writer for better performance
-        try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(fullPath));
-             CSVWriter csvWriter = new CSVWriter(bufferedWriter)) {
+    // Takes up to wanted permits without waiting and returns how many it got
+    private int acquirePartitionConnections(int wanted) {
+        int acquired = 0;
+        while (acquired < wanted && partitionConnectionPermits.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
 
-            // Write header
-            String[] headers = {"Student ID", "First Name", "Last Name", "Date of Birth", "Class", "Score"};
-            csvWriter.writeNext(headers);
-
-            // Process data in batches to reduce memory usage
-            int batchSize = 2000; // Larger batch for CSV as it's lighter
-            int pageNumber = 0;
-            Page<Student> students;
-
-            do {
-                students = getStudentReports(studentId, className, pageNumber, batchSize, "studentId", "asc");
-
-                for (Student student : students.getContent()) {
-                    String[] data = {
-                        student.getStudentId().toString(),
-                        student.getFirstName(),
-                        student.getLastName(),
-                        student.getDob().toString(),
-                        student.getClassName(),
-                        student.getScore().toString()
-                    };
-                    csvWriter.writeNext(data);
+    // Returns false without writing anything when the result is too small to partition
+    private boolean writePartitioned(ExportFormat format, OutputStream out, String className, int partitions)
+            throws IOException {
+        PartitionedExport export = new PartitionedExport(jdbcTemplate.getDataSource(), partitions, exportFetchSize);
+        if (format == ExportFormat.CSV) {
+            return export.run(className, partitionMinRows, ReportService::encodeCsvPart, (part, partFile, encoded) -> {
+                if (part.index == 0) {
+                    writeCsvHeader(out);
                 }
+                Files.copy(partFile, out);
+            }) >= 0;
+        }
 
-                // Flush buffer every batch for immediate write
-                csvWriter.flush();
-                pageNumber++;
+        PartitionedExcelWriter excel = new PartitionedExcelWriter(out);
+        try {
+            long rows = export.run(className, partitionMinRows, ReportService::encodeExcelPart, excel);
+            excel.finish();
+            return rows >= 0;
+        } catch (IOException | RuntimeException e) {
+            excel.abort();
+            throw e;
+        }
+    }
 
-            } while (students.hasNext());
+    private static Void encodeCsvPart(PartitionedExport.Part part, Path partFile, PartitionedExport.PartRows rows)
+            throws IOException {
+        try (BufferedWriter bufferedWriter = Files.newBufferedWriter(partFile, StandardCharsets.UTF_8);
+             CSVWriter csvWriter = new CSVWriter(bufferedWriter)) {
+            rows.forEach(student -> csvWriter.writeNext(csvRow(student)));
         }
+        return null;
+    }
 
-        return fileName;
+    // Encodes the part's rows as sheet XML numbered from its first sheet row; returns the column lengths
+    private static int[] encodeExcelPart(PartitionedExport.Part part, Path partFile, PartitionedExport.PartRows rows)
+            throws IOException {
+        int[] maxLengths = headerLengths();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(partFile), StandardCharsets.UTF_8), 256 * 1024)) {
+            SheetXmlWriter sheet = new SheetXmlWriter(writer, part.firstSheetRow);
+            rows.forEach(student -> {
+                measureExcelRow(maxLengths, student);
+                writeExcelRow(sheet, student);
+            });
+        }
+        return maxLengths;
     }
 
-    public String exportToPdf(Long studentId, String className) throws IOException, DocumentException {
-        System.out.println("=== PDF EXPORT STARTED ===");
-        System.out.println("Using OPTIMIZED batch processing (500 records per batch)");
+    // Appends encoded parts to one streamed workbook; column widths come from the first part
+    private class PartitionedExcelWriter implements PartitionedExport.PartConsumer<int[]> {
+        private final OutputStream out;
+        private StreamingXlsxWriter workbook;
 
-        // Create output directory if it doesn't exist
-        Path outputDir = Paths.get(outputPath);
-        if (!Files.exists(outputDir)) {
-            Files.createDirectories(outputDir);
+        PartitionedExcelWriter(OutputStream out) {
+            this.out = out;
         }
 
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String fileName = String.format("student_report_%s.pdf", timestamp);
-        String fullPath = outputPath + fileName;
+        @Override
+        public void accept(PartitionedExport.Part part, Path partFile, int[] maxLengths) throws IOException {
+            if (workbook == null) {
+                workbook = openExcelReport(out, maxLengths);
+            }
+            workbook.appendEncodedRows(partFile, part.rows());
+        }
 
-        // Create and write PDF document
-        try (FileOutputStream fileOut = new FileOutputStream(fullPath)) {
-            Document document = new Document();
-            PdfWriter.getInstance(document, fileOut);
-            document.open();
-
-            // Add title
-            com.itextpdf.text.Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
-            Paragraph title = new Paragraph("Student Report", titleFont);
-            title.setAlignment(Element.ALIGN_CENTER);
-            document.add(title);
-            document.add(new Paragraph(" ")); // Space
-
-            // Create table
-            PdfPTable table = new PdfPTable(6);
-            table.setWidthPercentage(100);
-
-            // Add headers
-            com.itextpdf.text.Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
-            String[] headers = {"Student ID", "First Name", "Last Name", "Date of Birth", "Class", "Score"};
-            for (String header : headers) {
-                PdfPCell cell = new PdfPCell(new Phrase(header, headerFont));
-                cell.setBackgroundColor(BaseColor.LIGHT_GRAY);
-                table.addCell(cell);
+        void finish() throws IOException {
+            if (workbook != null) {
+                System.out.println("Excel: Exported " + workbook.getDataRowCount() + " records");
+                workbook.close();
             }
+        }
 
-            // Process data in batches to reduce memory usage
-            int batchSize = 500; // Smaller batch for PDF as it's more memory intensive
-            int pageNumber = 0;
-            Page<Student> students;
-            com.itextpdf.text.Font dataFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
-
-            do {
-                students = getStudentReports(studentId, className, pageNumber, batchSize, "studentId", "asc");
-
-                for (Student student : students.getContent()) {
-                    table.addCell(new Phrase(student.getStudentId().toString(), dataFont));
-                    table.addCell(new Phrase(student.getFirstName(), dataFont));
-                    table.addCell(new Phrase(student.getLastName(), dataFont));
-                    table.addCell(new Phrase(student.getDob().toString(), dataFont));
-                    table.addCell(new Phrase(student.getClassName(), dataFont));
-                    table.addCell(new Phrase(student.getScore().toString(), dataFont));
+        // Like ExcelRowHandler.abort: a failed partition must not leave a complete-looking workbook
+        void abort() {
+            if (workbook != null) {
+                try {
+                    workbook.abort();
+                } catch (IOException | RuntimeException e) {
+                    // The export already failed; the caller reports the original error
                 }
+            }
+        }
+    }
+
+    private void writeCsvHeader(OutputStream out) throws IOException {
+        BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(StreamUtils.nonClosing(out), StandardCharsets.UTF_8));
+        CSVWriter csvWriter = new CSVWriter(bufferedWriter);
+        csvWriter.writeNext(REPORT_HEADERS);
+        csvWriter.flush();
+    }
+
+    private static String[] csvRow(StudentExportRow student) {
+        return new String[]{
+            Long.toString(student.studentId),
+            student.firstName,
+            student.lastName,
+            student.dob,
+            student.className,
+            Integer.toString(student.score)
+        };
+    }
 
-                pageNumber++;
+    private void writeCsv(OutputStream out, Long studentId, String className) throws IOException {
+        // Use buffered writer for better performance
+        try (BufferedWriter bufferedWriter = new BufferedWriter(
+                new OutputStreamWriter(StreamUtils.nonClosing(out), StandardCharsets.UTF_8), 64 * 1024);
+             CSVWriter csvWriter = new CSVWriter(bufferedWriter)) {
 
-                // For very large datasets, we might need to split into multiple documents
-                // but for moderate optimization, this batching should be sufficient
+            // Write header
+            csvWriter.writeNext(REPORT_HEADERS);
 
-            } while (students.hasNext());
+            int batchSize = 2000; // Larger batch for CSV as it's lighter (keyset reads only)
+            forEachExportRow(studentId, className, batchSize, student -> csvWriter.writeNext(csvRow(student)));
+        }
+    }
 
-            document.add(table);
-            document.close();
+    private void writePdf(OutputStream out, Long studentId, String className) throws IOException, DocumentException {
+        // Create and write PDF document
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setCloseStream(false);
+        document.open();
+
+        // Add title
+        Paragraph title = new Paragraph("Student Report", PDF_TITLE_FONT);
+        title.setAlignment(Element.ALIGN_CENTER);
+        document.add(title);
+        document.add(new Paragraph(" ")); // Space
+
+        // The table is added in chunks: with setComplete(false) each add lays out the rows
+        // received so far, writes the finished pages and drops those rows, so memory stays flat
+        // and output starts right away. The header row is repeated on every page.
+        PdfPTable table = new PdfPTable(6);
+        table.setWidthPercentage(100);
+        table.setHeaderRows(1);
+        table.setComplete(false);
+
+        // Add headers
+        for (String header : REPORT_HEADERS) {
+            PdfPCell cell = new PdfPCell(new Phrase(header, PDF_HEADER_FONT));
+            cell.setBackgroundColor(BaseColor.LIGHT_GRAY);
+            table.addCell(cell);
         }
 
-        return fileName;
+        int batchSize = 2000; // Rows are flushed every PDF_FLUSH_ROWS, so batches can be as large as CSV's
+        int[] pendingRows = {0};
+
+        forEachExportRow(studentId, className, batchSize, student -> {
+            table.addCell(new Phrase(Long.toString(student.studentId), PDF_DATA_FONT));
+            table.addCell(new Phrase(student.firstName, PDF_DATA_FONT));
+            table.addCell(new Phrase(student.lastName, PDF_DATA_FONT));
+            table.addCell(new Phrase(student.dob, PDF_DATA_FONT));
+            table.addCell(new Phrase(student.className, PDF_DATA_FONT));
+            table.addCell(new Phrase(Integer.toString(student.score), PDF_DATA_FONT));
+            if (++pendingRows[0] == PDF_FLUSH_ROWS) {
+                addPdfElement(document, table);
+                pendingRows[0] = 0;
+            }
+        });
+
+        table.setComplete(true);
+        document.add(table);
+        document.close();
     }
 
-    private CellStyle createHeaderStyle(Workbook workbook) {
-        CellStyle headerStyle = workbook.createCellStyle();
-        org.apache.poi.ss.usermodel.Font headerFont = workbook.createFont();
-        headerFont.setBold(true);
-        headerStyle.setFont(headerFont);
-        headerStyle.setFillForegroundColor(IndexedColors.LIGHT_BLUE.getIndex());
-        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        return headerStyle;
+    // Lets DocumentException through the row handler, which may only throw IOException
+    private static void addPdfElement(Document document, Element element) throws IOException {
+        try {
+            document.add(element);
+        } catch (DocumentException e) {
+            throw new IOException("Error building PDF report", e);
+        }
     }
 
     // Enhanced search with multiple filters
@@ -328,14 +702,15 @@ public class ReportService {
     public Map<String, Object> getReportStatistics() {
         Map<String, Object> stats = new HashMap<>();
 
-        long totalStudents = studentRepository.count();
+        ScoreHistogram histogram = classScoreIndex.getHistogram(null);
+        long totalStudents = histogram.getTotal();
         stats.put("totalStudents", totalStudents);
 
         if (totalStudents > 0) {
-            Double avgScore = studentRepository.findAverageScore();
-            Integer maxScore = studentRepository.findMaxScore();
-            Integer minScore = studentRepository.findMinScore();
-            Long passCount = studentRepository.countByScoreGreaterThanEqual(50);
+            Double avgScore = histogram.getAverage();
+            Integer maxScore = histogram.getMax();
+            Integer minScore = histogram.getMin();
+            Long passCount = histogram.countAtLeast(50);
             Long failCount = totalStudents - passCount;
 
             stats.put("averageScore", avgScore != null ? Math.round(avgScore * 100.0) / 100.0 : 0.0);
@@ -359,12 +734,13 @@ public class ReportService {
     // Get score distribution for charts
     public Map<String, Object> getScoreDistribution() {
         Map<String, Object> distribution = new HashMap<>();
+        ScoreHistogram histogram = classScoreIndex.getHistogram(null);
 
         // Score ranges: 0-40 (Fail), 41-60 (Pass), 61-80 (Good), 81-100 (Excellent)
-        Long failCount = studentRepository.countByScoreBetween(0, 40);
-        Long passCount = studentRepository.countByScoreBetween(41, 60);
-        Long goodCount = studentRepository.countByScoreBetween(61, 80);
-        Long excellentCount = studentRepository.countByScoreBetween(81, 100);
+        Long failCount = histogram.countBetween(0, 40);
+        Long passCount = histogram.countBetween(41, 60);
+        Long goodCount = histogram.countBetween(61, 80);
+        Long excellentCount = histogram.countBetween(81, 100);
 
         distribution.put("ranges", List.of("0-40 (Fail)", "41-60 (Pass)", "61-80 (Good)", "81-100 (Excellent)"));
         distribution.put("counts", List.of(failCount, passCount, goodCount, excellentCount));
@@ -373,6 +749,50 @@ public class ReportService {
         return distribution;
     }
 
+    // Average score and pass rate of every class, ordered by class name
+    public List<Map<String, Object>> getClassAverages() {
+        List<Map<String, Object>> classes = new ArrayList<>();
+        classScoreIndex.getClassHistograms().forEach((className, histogram) -> {
+            long students = histogram.getTotal();
+            if (students == 0) {
+                return;
+            }
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("className", className);
+            entry.put("totalStudents", students);
+            entry.put("averageScore", Math.round(histogram.getAverage() * 100.0) / 100.0);
+            entry.put("passRate", Math.round((histogram.countAtLeast(50) * 100.0 / students) * 100.0) / 100.0);
+            classes.add(entry);
+        });
+        return classes;
+    }
+
+    // Where a score ranks among all students, or among one class when className is given
+    public Map<String, Object> getScoreRank(int score, String className) {
+        if (score < 0 || score > ClassScoreCounts.MAX_SCORE) {
+            throw new IllegalArgumentException("Score must be between 0 and " + ClassScoreCounts.MAX_SCORE);
+        }
+        ScoreHistogram histogram = classScoreIndex.getHistogram(className);
+        long totalStudents = histogram.getTotal();
+        long below = histogram.countBelow(score);
+        long equal = histogram.countAt(score);
+        long above = totalStudents - below - equal;
+
+        Map<String, Object> rank = new HashMap<>();
+        rank.put("score", score);
+        rank.put("className", className);
+        rank.put("totalStudents", totalStudents);
+        rank.put("studentsBelow", below);
+        rank.put("studentsWithScore", equal);
+        rank.put("studentsAbove", above);
+        // 1 plus the number of students with a higher score, so equal scores share a rank
+        rank.put("rank", above + 1);
+        // Students with the same score count half, the usual percentile rank definition
+        double percentile = totalStudents > 0 ? (below + 0.5 * equal) * 100.0 / totalStudents : 0.0;
+        rank.put("percentile", Math.round(percentile * 100.0) / 100.0);
+        return rank;
+    }
+
     // Get top performers
     public List<Student> getTopPerformers(int limit) {
         Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "score"));
@@ -383,4 +803,13 @@ public class ReportService {
     public List<String> getAvailableClasses() {
         return studentRepository.findDistinctClassNames();
     }
+
+    // Deletes every student with one bulk DELETE and returns how many rows it removed. The event is
+    // published inside the transaction, so listeners see it once the delete has committed.
+    @Transactional
+    public long clearAllData() {
+        long recordsDeleted = studentRepository.deleteAllStudents();
+        eventPublisher.publishEvent(StudentDataChangedEvent.cleared("clear-data", recordsDeleted));
+        return recordsDeleted;
+    }
 }
\ No newline at end of file
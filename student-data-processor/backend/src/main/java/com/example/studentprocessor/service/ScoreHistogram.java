@@ -0,0 +1,81 @@
+package com.example.studentprocessor.service;
+
+/**
+ * Number of students per score (0-100), taken from the in-memory ClassScoreIndex. Counts, sums,
+ * extremes, range counts and ranks for the statistics endpoints are all derived from it.
+ */
+final class ScoreHistogram {
+
+    // Students with each score, indexed by score
+    private final long[] counts;
+    private final long total;
+
+    private ScoreHistogram(long[] counts) {
+        this.counts = counts;
+        long sum = 0;
+        for (long count : counts) {
+            sum += count;
+        }
+        this.total = sum;
+    }
+
+    // Counts indexed by score, as returned by ClassScoreCounts; the array is not copied
+    static ScoreHistogram ofCounts(long[] countsByScore) {
+        return new ScoreHistogram(countsByScore);
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    // null when there are no students, like AVG/MIN/MAX in SQL
+    Double getAverage() {
+        if (total == 0) {
+            return null;
+        }
+        double sum = 0;
+        for (int score = 0; score < counts.length; score++) {
+            sum += (double) score * counts[score];
+        }
+        return sum / total;
+    }
+
+    Integer getMin() {
+        for (int score = 0; score < counts.length; score++) {
+            if (counts[score] > 0) {
+                return score;
+            }
+        }
+        return null;
+    }
+
+    Integer getMax() {
+        for (int score = counts.length - 1; score >= 0; score--) {
+            if (counts[score] > 0) {
+                return score;
+            }
+        }
+        return null;
+    }
+
+    long countAtLeast(int minScore) {
+        return countBetween(minScore, Integer.MAX_VALUE);
+    }
+
+    long countBelow(int score) {
+        return countBetween(Integer.MIN_VALUE, score - 1);
+    }
+
+    long countAt(int score) {
+        return score >= 0 && score < counts.length ? counts[score] : 0;
+    }
+
+    // Students with minScore <= score <= maxScore
+    long countBetween(int minScore, int maxScore) {
+        long count = 0;
+        for (int score = Math.max(minScore, 0); score <= Math.min(maxScore, counts.length - 1); score++) {
+            count += counts[score];
+        }
+        return count;
+    }
+}
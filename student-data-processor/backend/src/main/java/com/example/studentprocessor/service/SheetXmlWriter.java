@@ -0,0 +1,141 @@
+package com.example.studentprocessor.service;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes SpreadsheetML sheet rows (the content of {@code <sheetData>}) straight to a Writer:
+ * numbers as {@code <v>}, text as inline strings, so no shared string table or per-cell objects
+ * are needed.
+ */
+class SheetXmlWriter {
+
+    static final String SHEET_START = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">";
+    static final String SHEET_DATA_START = "<sheetData>";
+    static final String SHEET_END = "</sheetData></worksheet>";
+
+    // Style index of the bold, light blue header style in XlsxPackage.STYLES
+    static final int HEADER_STYLE = 1;
+
+    private static final String[] COLUMN_NAMES = new String[64];
+
+    static {
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            COLUMN_NAMES[i] = ColumnMapping.columnName(i);
+        }
+    }
+
+    protected final Writer out;
+    private long nextRowNumber;
+    private String rowNumber;
+    private int column;
+
+    // Rows are numbered consecutively from firstRowNumber (1-based, as in the sheet)
+    SheetXmlWriter(Writer out, long firstRowNumber) {
+        this.out = out;
+        this.nextRowNumber = firstRowNumber;
+    }
+
+    void startRow() throws IOException {
+        rowNumber = Long.toString(nextRowNumber++);
+        column = 0;
+        out.write("<row r=\"");
+        out.write(rowNumber);
+        out.write("\">");
+    }
+
+    // Number the next row will get
+    long getNextRowNumber() {
+        return nextRowNumber;
+    }
+
+    void skipRows(long rows) {
+        nextRowNumber += rows;
+    }
+
+    void restartRowNumbering(long firstRowNumber) {
+        nextRowNumber = firstRowNumber;
+    }
+
+    void writeHeaderRow(String[] headers) throws IOException {
+        startRow();
+        for (String header : headers) {
+            stringCell(header, HEADER_STYLE);
+        }
+        endRow();
+    }
+
+    void numberCell(long value) throws IOException {
+        startCell(null, 0);
+        out.write("><v>");
+        out.write(Long.toString(value));
+        out.write("</v></c>");
+    }
+
+    void numberCell(double value) throws IOException {
+        startCell(null, 0);
+        out.write("><v>");
+        out.write(value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value));
+        out.write("</v></c>");
+    }
+
+    void stringCell(String value) throws IOException {
+        stringCell(value, 0);
+    }
+
+    void stringCell(String value, int style) throws IOException {
+        if (value == null || value.isEmpty()) {
+            column++;
+            return;
+        }
+        startCell("inlineStr", style);
+        out.write("><is><t>");
+        writeEscaped(value);
+        out.write("</t></is></c>");
+    }
+
+    void endRow() throws IOException {
+        out.write("</row>\n");
+    }
+
+    private void startCell(String type, int style) throws IOException {
+        out.write("<c r=\"");
+        out.write(column < COLUMN_NAMES.length ? COLUMN_NAMES[column] : ColumnMapping.columnName(column));
+        out.write(rowNumber);
+        out.write('"');
+        if (type != null) {
+            out.write(" t=\"");
+            out.write(type);
+            out.write('"');
+        }
+        if (style != 0) {
+            out.write(" s=\"");
+            out.write(Integer.toString(style));
+            out.write('"');
+        }
+        column++;
+    }
+
+    private void writeEscaped(String value) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = "&gt;"; break;
+                case '&': replacement = "&amp;"; break;
+                default:
+                    // Control characters are not allowed in XML 1.0
+                    replacement = (c < 0x20 && c != '\t' && c != '\n' && c != '\r') ? "" : null;
+            }
+            if (replacement != null) {
+                out.write(value, start, i - start);
+                out.write(replacement);
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+    }
+}
@@ -3,7 +3,7 @@ package com.example.studentprocessor.service;
 import com.example.studentprocessor.dto.ProcessingResult;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
-import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.xml.sax.*;
 import org.xml.sax.helpers.DefaultHandler;
@@ -15,101 +15,201 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 
 @Service
 public class StreamingExcelToCsvService {
 
     private static final String OUTPUT_DIR = "C:/var/log/applications/API/dataprocessing/";
 
+    @Value("${app.file.csv-output-path:" + OUTPUT_DIR + "}")
+    private String outputDir = OUTPUT_DIR;
+
+    // Number of decoded shared strings kept on the heap; the full table lives in a temp file
+    @Value("${app.excel.shared-strings-cache-size:1024}")
+    private int sharedStringsCacheSize = 1024;
+
+    // Score adjustment applied when converting Excel to CSV
+    public static final int CONVERSION_SCORE_ADJUSTMENT = 10;
+
+    // Bump whenever the row transforms change so cached conversion results are not reused
+    public static final int TRANSFORM_VERSION = 3;
+
+    // Receives each data row (studentId, firstName, lastName, DOB, class, score) as it is parsed
+    public interface RowListener {
+        void onRow(String[] values) throws IOException;
+
+        // Called once the reader knows roughly how many data rows the sheet holds
+        default void onRowCountEstimate(long rows) {
+        }
+    }
+
+    public String getOutputDirectory() {
+        return outputDir;
+    }
+
     public ProcessingResult convertExcelToCsvStreaming(String excelFilePath) throws Exception {
+        return convertExcelToCsvStreaming(excelFilePath, ConversionOutputFormat.CSV);
+    }
+
+    public ProcessingResult convertExcelToCsvStreaming(String excelFilePath, ConversionOutputFormat format) throws Exception {
+        return convertExcelToCsvStreaming(excelFilePath, format, null);
+    }
+
+    /**
+     * Converts the workbook, also passing every written row to the optional observer (used for
+     * job progress). If the observer throws, the partially written output file is removed.
+     */
+    public ProcessingResult convertExcelToCsvStreaming(String excelFilePath, ConversionOutputFormat format,
+                                                       RowListener observer) throws Exception {
         System.out.println("=== Starting Streaming Excel to CSV Conversion ===");
         System.out.println("Input file: " + excelFilePath);
 
-        // Generate output CSV filename
+        // Generate output filename
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String baseFileName = new File(excelFilePath).getName().replace(".xlsx", "");
-        String csvFileName = baseFileName + "_processed_" + timestamp + ".csv";
-        String csvFilePath = OUTPUT_DIR + csvFileName;
+        String baseFileName = new File(excelFilePath).getName().replaceFirst("(?i)\\.xlsx?$", "");
+        String csvFileName = baseFileName + "_processed_" + timestamp + format.getExtension();
+        String csvFilePath = outputDir + csvFileName;
 
-        System.out.println("Output CSV: " + csvFilePath);
+        System.out.println("Output file (" + format.getCode() + "): " + csvFilePath);
 
         long startTime = System.currentTimeMillis();
+        int recordCount;
+
+        ColumnMapping mapping = ColumnMapping.students(CONVERSION_SCORE_ADJUSTMENT);
+
+        try (ConversionSink sink = format.openSink(Paths.get(csvFilePath))) {
+            sink.writeHeader(mapping.outputHeaders());
+            recordCount = streamRows(excelFilePath, mapping, tee(sink, observer));
+        } catch (Exception e) {
+            Files.deleteIfExists(Paths.get(csvFilePath));
+            throw e;
+        }
+
+        long endTime = System.currentTimeMillis();
+        double processingTime = (endTime - startTime) / 1000.0;
+
+        System.out.println(String.format("Streaming conversion completed in %.2f seconds", processingTime));
+        System.out.println(String.format("Output file created: %s (%.2f MB)",
+                csvFileName, Files.size(Paths.get(csvFilePath)) / (1024.0 * 1024.0)));
+        System.out.println("Records processed: " + recordCount);
+
+        return new ProcessingResult(csvFileName, recordCount, processingTime);
+    }
+
+    /**
+     * Streams the data rows of the workbook to the listener, adding scoreAdjustment to every score.
+     * Handles both .xlsx (SAX over the sheet XML) and legacy .xls (HSSF record events).
+     * Returns the number of data rows delivered.
+     */
+    public int streamRows(String excelFilePath, int scoreAdjustment, RowListener listener) throws Exception {
+        return streamRows(excelFilePath, ColumnMapping.students(scoreAdjustment), listener);
+    }
+
+    /**
+     * Streams the data rows of the workbook to the listener in the column order of the mapping.
+     * Sheet columns are matched by header name, falling back to the mapping's default positions.
+     * Every sheet starts with its own header row; sheets after the first (e.g. rolled over at the
+     * xlsx row limit) are read when their header matches the mapping.
+     */
+    public int streamRows(String excelFilePath, ColumnMapping mapping, RowListener listener) throws Exception {
+        StudentRowAssembler rows = new StudentRowAssembler(listener, mapping);
+
+        if (isLegacyXls(excelFilePath)) {
+            new XlsEventReader(rows).process(excelFilePath);
+            return rows.getRecordCount();
+        }
+
         SheetHandler handler = new SheetHandler();
 
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(csvFilePath))) {
-            // Write CSV header
-            writer.write("studentId,firstName,lastName,DOB,class,score");
-            writer.newLine();
+        OPCPackage pkg = OPCPackage.open(new File(excelFilePath));
+        XSSFReader reader = new XSSFReader(pkg);
 
-            OPCPackage pkg = OPCPackage.open(new File(excelFilePath));
-            XSSFReader reader = new XSSFReader(pkg);
-            ReadOnlySharedStringsTable sst = new ReadOnlySharedStringsTable(pkg);
+        // Spool shared strings to disk so huge workbooks don't hold every name on the heap
+        try (InputStream sstData = reader.getSharedStringsData();
+             DiskBackedSharedStringsTable sst = new DiskBackedSharedStringsTable(sstData, sharedStringsCacheSize)) {
 
-            XMLReader parser = fetchSheetParser(sst, writer, handler);
+            XMLReader parser = fetchSheetParser(sst, rows, handler);
 
-            // Get first sheet and process streaming
-            try (InputStream sheet = reader.getSheetsData().next()) {
-                InputSource sheetSource = new InputSource(sheet);
-                parser.parse(sheetSource);
+            // Process the sheets in workbook order, streaming each one
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    rows.startSheet();
+                    InputSource sheetSource = new InputSource(sheet);
+                    parser.parse(sheetSource);
+                }
             }
-
+        } finally {
             pkg.close();
         }
 
-        long endTime = System.currentTimeMillis();
-        double processingTime = (endTime - startTime) / 1000.0;
+        return rows.getRecordCount();
+    }
 
-        System.out.println(String.format("Streaming conversion completed in %.2f seconds", processingTime));
-        System.out.println("CSV file created: " + csvFileName);
-        System.out.println("Records processed: " + handler.getRecordCount());
+    private static RowListener tee(RowListener sink, RowListener observer) {
+        if (observer == null) {
+            return sink;
+        }
+        return new RowListener() {
+            @Override
+            public void onRow(String[] values) throws IOException {
+                sink.onRow(values);
+                observer.onRow(values);
+            }
+
+            @Override
+            public void onRowCountEstimate(long rows) {
+                sink.onRowCountEstimate(rows);
+                observer.onRowCountEstimate(rows);
+            }
+        };
+    }
 
-        return new ProcessingResult(csvFileName, handler.getRecordCount(), processingTime);
+    private static boolean isLegacyXls(String excelFilePath) {
+        return excelFilePath.toLowerCase().endsWith(".xls");
     }
 
-    private XMLReader fetchSheetParser(ReadOnlySharedStringsTable sst, BufferedWriter writer, SheetHandler handler)
-            throws SAXException, ParserConfigurationException {
+    private XMLReader fetchSheetParser(DiskBackedSharedStringsTable sst, StudentRowAssembler rows,
+                                       SheetHandler handler) throws SAXException, ParserConfigurationException {
 
         XMLReader parser = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
-        handler.initialize(sst, writer);
+        handler.initialize(sst, rows);
         parser.setContentHandler(handler);
         return parser;
     }
 
-    // Custom handler to stream rows and apply +10 score adjustment
+    // Custom handler to stream rows from the sheet XML into the row assembler
     private static class SheetHandler extends DefaultHandler {
-        private ReadOnlySharedStringsTable sst;
-        private BufferedWriter writer;
+        private DiskBackedSharedStringsTable sst;
+        private StudentRowAssembler rows;
 
         private boolean nextIsString;
         private boolean isInlineString;
         private String lastContents;
-        private String cellReference;
-        private String[] currentRowData = new String[6]; // For 6 columns
-        private int rowCount = 0;
-        private boolean isHeaderRow = true;
+        private int columnIndex;
+        private int nextColumnIndex;
 
-        public void initialize(ReadOnlySharedStringsTable sst, BufferedWriter writer) {
+        public void initialize(DiskBackedSharedStringsTable sst, StudentRowAssembler rows) {
             this.sst = sst;
-            this.writer = writer;
-        }
-
-        public int getRecordCount() {
-            return rowCount;
+            this.rows = rows;
         }
 
         @Override
         public void startElement(String uri, String localName, String name, Attributes attributes) {
             if (name.equals("c")) { // cell
-                cellReference = attributes.getValue("r"); // Get cell reference like "A1", "B1", etc.
+                // Cell reference like "A1" or "AB12"; writers may omit it, then cells are sequential
+                int referenced = ColumnMapping.columnIndex(attributes.getValue("r"));
+                columnIndex = referenced >= 0 ? referenced : nextColumnIndex;
+                nextColumnIndex = columnIndex + 1;
                 String cellType = attributes.getValue("t");
                 nextIsString = cellType != null && cellType.equals("s");
                 isInlineString = cellType != null && cellType.equals("inlineStr");
             } else if (name.equals("row")) {
-                // Reset row data for new row
-                currentRowData = new String[6];
-                for (int i = 0; i < 6; i++) {
-                    currentRowData[i] = "";
-                }
+                nextColumnIndex = 0;
+                rows.startRow();
+            } else if (name.equals("dimension")) {
+                rows.rowCountEstimate(attributes.getValue("ref"));
             }
             lastContents = "";
         }
@@ -119,7 +219,7 @@ public class StreamingExcelToCsvService {
             if (nextIsString && name.equals("v")) {
                 try {
                     int idx = Integer.parseInt(lastContents);
-                    lastContents = sst.getItemAt(idx).getString();
+                    lastContents = sst.getString(idx);
                 } catch (Exception e) {
                     // Keep original value if shared string lookup fails
                 }
@@ -130,62 +230,18 @@ public class StreamingExcelToCsvService {
 
             if (name.equals("v") || (name.equals("c") && isInlineString)) {
                 // Store cell value in appropriate column
-                if (cellReference != null) {
-                    int columnIndex = getColumnIndex(cellReference);
-
-                    if (columnIndex >= 0 && columnIndex < 6) {
-                        // Apply +10 to score column (index 5) for data rows only
-                        if (columnIndex == 5 && !isHeaderRow) {
-                            try {
-                                // Handle decimal format scores by converting to double first, then to int
-                                double scoreDouble = Double.parseDouble(lastContents.trim());
-                                int score = (int) scoreDouble;
-                                currentRowData[columnIndex] = String.valueOf(score + 10);
-                            } catch (NumberFormatException e) {
-                                currentRowData[columnIndex] = lastContents;
-                            }
-                        } else if (columnIndex == 0 && !isHeaderRow) {
-                            // Format student ID as integer (remove decimal points)
-                            try {
-                                double studentIdDouble = Double.parseDouble(lastContents.trim());
-                                long studentId = (long) studentIdDouble;
-                                currentRowData[columnIndex] = String.valueOf(studentId);
-                            } catch (NumberFormatException e) {
-                                currentRowData[columnIndex] = lastContents;
-                            }
-                        } else {
-                            currentRowData[columnIndex] = lastContents;
-                        }
-                    }
-                }
+                rows.cell(columnIndex, lastContents);
             } else if (name.equals("row")) {
-                // Write complete row to CSV
-                if (!isHeaderRow) {
-                    try {
-                        StringBuilder csvRow = new StringBuilder();
-                        for (int i = 0; i < 6; i++) {
-                            if (i > 0) csvRow.append(",");
-                            csvRow.append("\"").append(currentRowData[i].replace("\"", "\"\"")).append("\"");
-                        }
-                        writer.write(csvRow.toString());
-                        writer.newLine();
-                        rowCount++;
-
-                        // Progress logging every 100,000 rows
-                        if (rowCount % 100000 == 0) {
-                            System.out.println("Processed " + rowCount + " rows...");
-                        }
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                } else {
-                    isHeaderRow = false;
+                // Hand the complete row to the listener
+                try {
+                    rows.endRow();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
                 }
             }
 
             // Reset for next cell
             if (name.equals("c")) {
-                cellReference = null;
                 nextIsString = false;
                 isInlineString = false;
             }
@@ -195,21 +251,5 @@ public class StreamingExcelToCsvService {
         public void characters(char[] ch, int start, int length) {
             lastContents += new String(ch, start, length);
         }
-
-        // Convert cell reference like "A1", "B2", "F5" to column index (0-5)
-        private int getColumnIndex(String cellRef) {
-            if (cellRef == null || cellRef.length() < 1) return -1;
-
-            char column = cellRef.charAt(0);
-            switch (column) {
-                case 'A': return 0; // studentId
-                case 'B': return 1; // firstName
-                case 'C': return 2; // lastName
-                case 'D': return 3; // DOB
-                case 'E': return 4; // class
-                case 'F': return 5; // score
-                default: return -1;
-            }
-        }
     }
 }
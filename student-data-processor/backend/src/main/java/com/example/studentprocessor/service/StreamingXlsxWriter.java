@@ -0,0 +1,177 @@
+package com.example.studentprocessor.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an xlsx workbook row by row straight into the zip stream, without building POI
+ * Row/Cell objects or spooling the sheet to a temp file first. Text cells are inline strings
+ * and the only styles are the default and the header style, so nothing needs to be kept in
+ * memory besides the output buffer.
+ *
+ * The zip is deflated by ParallelDeflateZipOutputStream, at a configurable level (0 stores the
+ * sheets uncompressed), on the shared deflate executor when one is given.
+ *
+ * Column widths can be given up front (e.g. estimated from the first rows) and are written as
+ * {@code <cols>} on every sheet; measuring cells afterwards the way autosize does would need the
+ * whole sheet in memory.
+ *
+ * When a sheet reaches the xlsx row limit the writer closes it and continues on a new sheet
+ * ("Students", "Students (2)", ...) with the header repeated, so any number of rows fits.
+ *
+ * Usage: {@code startRow()}, one {@code ...Cell()} call per column, {@code endRow()}, and
+ * {@code close()} once all rows are written, or {@code abort()} if the rows can't be completed.
+ */
+class StreamingXlsxWriter extends SheetXmlWriter implements Closeable {
+
+    // Data rows per sheet, the header row taking the first
+    static final int DATA_ROWS_PER_SHEET = XlsxPackage.MAX_SHEET_ROWS - 1;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    // Default when the caller has no compression settings
+    static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+    private final ParallelDeflateZipOutputStream zip;
+    private final String baseSheetName;
+    private final String[] headers;
+    private final long totalDataRows;
+    private final double[] columnWidths;
+    private final List<String> sheetNames = new ArrayList<>();
+    private long rowsInEarlierSheets;
+
+    private StreamingXlsxWriter(ParallelDeflateZipOutputStream zip, Writer out, String baseSheetName, String[] headers,
+                                long totalDataRows, double[] columnWidths) {
+        super(out, 1);
+        this.zip = zip;
+        this.baseSheetName = baseSheetName;
+        this.headers = headers;
+        this.totalDataRows = totalDataRows;
+        this.columnWidths = columnWidths;
+    }
+
+    /**
+     * Opens a workbook and writes the header row of its first sheet. If the number of data rows
+     * is known up front (dataRows >= 0) each sheet's dimension is recorded.
+     *
+     * @param compressionLevel deflate level 0-9, 0 for stored
+     * @param deflaters        shared executor deflating the zip, or null to deflate on this thread
+     * @param columnWidths     width of each column in characters, or null for Excel's default
+     */
+    static StreamingXlsxWriter open(OutputStream target, String sheetName, String[] headers, long dataRows,
+                                    int compressionLevel, Executor deflaters, double[] columnWidths) throws IOException {
+        ParallelDeflateZipOutputStream zip = new ParallelDeflateZipOutputStream(
+                new BufferedOutputStream(target, BUFFER_SIZE), compressionLevel, deflaters);
+        Writer out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        StreamingXlsxWriter writer = new StreamingXlsxWriter(zip, out, sheetName, headers, dataRows, columnWidths);
+        writer.startSheet();
+        return writer;
+    }
+
+    static StreamingXlsxWriter open(OutputStream target, String sheetName, String[] headers, long dataRows,
+                                    int compressionLevel, Executor deflaters) throws IOException {
+        return open(target, sheetName, headers, dataRows, compressionLevel, deflaters, null);
+    }
+
+    static StreamingXlsxWriter open(OutputStream target, String sheetName, String[] headers, long dataRows) throws IOException {
+        return open(target, sheetName, headers, dataRows, DEFAULT_COMPRESSION_LEVEL, null);
+    }
+
+    static StreamingXlsxWriter open(Path file, String sheetName, String[] headers, long dataRows,
+                                    int compressionLevel, Executor deflaters) throws IOException {
+        return open(Files.newOutputStream(file), sheetName, headers, dataRows, compressionLevel, deflaters);
+    }
+
+    static StreamingXlsxWriter open(Path file, String sheetName, String[] headers, long dataRows) throws IOException {
+        return open(file, sheetName, headers, dataRows, DEFAULT_COMPRESSION_LEVEL, null);
+    }
+
+    @Override
+    void startRow() throws IOException {
+        if (getNextRowNumber() > XlsxPackage.MAX_SHEET_ROWS) {
+            rollOver();
+        }
+        super.startRow();
+    }
+
+    /**
+     * Appends rows that were already encoded by a SheetXmlWriter, e.g. chunks generated in
+     * parallel. The rows must be numbered from the current sheet row onwards and must fit in the
+     * current sheet; a chunk that starts exactly at a sheet boundary starts a new sheet first.
+     */
+    void appendEncodedRows(Path sheetData, long rows) throws IOException {
+        if (getNextRowNumber() > XlsxPackage.MAX_SHEET_ROWS) {
+            rollOver();
+        }
+        if (getNextRowNumber() - 1 + rows > XlsxPackage.MAX_SHEET_ROWS) {
+            throw new IllegalStateException("Encoded rows cross the end of sheet " + sheetNames.size());
+        }
+        out.flush();
+        Files.copy(sheetData, zip);
+        skipRows(rows);
+    }
+
+    long getDataRowCount() {
+        return rowsInEarlierSheets + getNextRowNumber() - 2;
+    }
+
+    int getSheetCount() {
+        return sheetNames.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            endSheet();
+            XlsxPackage.writeWorkbookParts(zip, sheetNames);
+        } finally {
+            zip.close();
+        }
+    }
+
+    /**
+     * Closes the target after a failed export without ending the sheet or writing the workbook
+     * parts, so the partial output is not a valid xlsx. Rows still buffered are discarded.
+     */
+    void abort() throws IOException {
+        zip.abort();
+    }
+
+    private void rollOver() throws IOException {
+        rowsInEarlierSheets += getNextRowNumber() - 2;
+        endSheet();
+        startSheet();
+        System.out.println("Sheet row limit reached, continuing on sheet " + sheetNames.size());
+    }
+
+    private void startSheet() throws IOException {
+        int sheetNumber = sheetNames.size() + 1;
+        sheetNames.add(XlsxPackage.sheetName(baseSheetName, sheetNumber));
+
+        zip.putNextEntry(XlsxPackage.sheetEntry(sheetNumber));
+        out.write(SHEET_START);
+        if (totalDataRows >= 0) {
+            long sheetRows = Math.min(totalDataRows - rowsInEarlierSheets, DATA_ROWS_PER_SHEET);
+            out.write(XlsxPackage.dimension(headers.length, sheetRows + 1));
+        }
+        if (columnWidths != null) {
+            out.write(XlsxPackage.cols(columnWidths));
+        }
+        out.write(SHEET_DATA_START);
+        restartRowNumbering(1);
+        writeHeaderRow(headers);
+    }
+
+    private void endSheet() throws IOException {
+        out.write(SHEET_END);
+        out.flush();
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.studentprocessor.service;
+
+/**
+ * Published after rows of the students table were inserted or deleted (uploads, synthetic loads,
+ * clearing the data). Listeners use it to drop or update anything derived from the data, such as
+ * cached report exports and the per-class score histograms.
+ *
+ * An insert event carries the class and score counts of the rows it committed when the writer
+ * knows them; without them listeners have to re-read the table.
+ */
+public class StudentDataChangedEvent {
+
+    private final String source;
+    private final long rowsAffected;
+    private final ClassScoreCounts inserted;
+    private final boolean cleared;
+
+    // rowsAffected is -1 when the writer doesn't know how many rows changed
+    public StudentDataChangedEvent(String source, long rowsAffected) {
+        this(source, rowsAffected, null, false);
+    }
+
+    // Rows were only added, with these classes and scores
+    public StudentDataChangedEvent(String source, ClassScoreCounts inserted, long rowsAffected) {
+        this(source, rowsAffected, inserted, false);
+    }
+
+    private StudentDataChangedEvent(String source, long rowsAffected, ClassScoreCounts inserted, boolean cleared) {
+        this.source = source;
+        this.rowsAffected = rowsAffected;
+        this.inserted = inserted;
+        this.cleared = cleared;
+    }
+
+    // Every student was deleted
+    public static StudentDataChangedEvent cleared(String source, long rowsDeleted) {
+        return new StudentDataChangedEvent(source, rowsDeleted, null, true);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getRowsAffected() {
+        return rowsAffected;
+    }
+
+    // null when the inserted rows are unknown
+    public ClassScoreCounts getInserted() {
+        return inserted;
+    }
+
+    public boolean isCleared() {
+        return cleared;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.studentprocessor.service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Produces synthetic student rows shaped by a WorkloadProfile. All randomness comes from the
+ * SplittableRandom passed in, and the name and class pools are built from fixed seeds, so the
+ * same seed always yields the same rows.
+ *
+ * Rows are identified by their zero-based index in the generated range. The student ID is a
+ * pure function of that index (shuffled by a modular permutation when the profile asks for
+ * out-of-order IDs), so chunks generated in parallel never need to coordinate, and a duplicate
+ * row can reuse the ID of any earlier index.
+ */
+class StudentDataSynthesizer {
+
+    static final String[] HEADERS = {"studentId", "firstName", "lastName", "DOB", "class", "score"};
+
+    // Every DOB between 2000-01-01 and 2010-12-31, pre-formatted
+    static final String[] BIRTH_DATES = generateDatePool(LocalDate.of(2000, 1, 1), LocalDate.of(2010, 12, 31));
+
+    private static final Map<WorkloadProfile, StudentDataSynthesizer> INSTANCES = new EnumMap<>(WorkloadProfile.class);
+
+    // Mutable holder for one generated row; each worker reuses its own
+    static final class Row {
+        long studentId;
+        String firstName;
+        String lastName;
+        String dob;
+        String className;
+        int score;
+        boolean duplicate; // reuses the studentId of an earlier row
+        boolean invalid;   // breaks a column rule of the students table, so the database rejects it
+    }
+
+    private final WorkloadProfile profile;
+    private final String[] firstNames;
+    private final String[] lastNames;
+    private final String[] classNames;
+    private final double[] classCdf; // null for uniform class sizes
+    private volatile long[] lastShuffle = {0, 1}; // {rowCount, multiplier} of the most recent range
+
+    private StudentDataSynthesizer(WorkloadProfile profile) {
+        this.profile = profile;
+        this.firstNames = generateNamePool(profile, 0x5EED_F125L); // Pre-generated names for speed
+        this.lastNames = generateNamePool(profile, 0x5EED_1A57L);
+        this.classNames = generateClassNames(profile);
+        this.classCdf = profile.getClassZipfExponent() > 0 ? zipfCdf(classNames.length, profile.getClassZipfExponent()) : null;
+    }
+
+    static synchronized StudentDataSynthesizer forProfile(WorkloadProfile profile) {
+        return INSTANCES.computeIfAbsent(profile, StudentDataSynthesizer::new);
+    }
+
+    WorkloadProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Fills row with the values for the given index of a range of rowCount rows. The IDs of a
+     * range are 1..rowCount; callers add their own offset.
+     */
+    void next(Row row, long index, long rowCount, SplittableRandom random) {
+        row.firstName = firstNames[random.nextInt(firstNames.length)];
+        row.lastName = lastNames[random.nextInt(lastNames.length)];
+        row.dob = BIRTH_DATES[random.nextInt(BIRTH_DATES.length)];
+        row.className = classNames[classCdf == null ? random.nextInt(classNames.length) : sampleClass(random)];
+        row.score = nextScore(random);
+
+        row.duplicate = index > 0 && profile.getDuplicateRate() > 0 && random.nextDouble() < profile.getDuplicateRate();
+        row.studentId = studentIdFor(row.duplicate ? random.nextLong(index) : index, rowCount);
+
+        row.invalid = profile.getInvalidRate() > 0 && random.nextDouble() < profile.getInvalidRate();
+        if (row.invalid) {
+            breakRow(row, random);
+        }
+    }
+
+    static void writeRow(SheetXmlWriter sheet, Row row) throws IOException {
+        sheet.startRow();
+        sheet.numberCell(row.studentId);
+        sheet.stringCell(row.firstName);
+        sheet.stringCell(row.lastName);
+        sheet.stringCell(row.dob);
+        sheet.stringCell(row.className);
+        sheet.numberCell(row.score);
+        sheet.endRow();
+    }
+
+    // One CSV line for COPY ... (FORMAT csv); pool values never contain commas or quotes
+    static void appendCsvRow(StringBuilder csv, Row row, long idOffset) {
+        csv.append(row.studentId + idOffset).append(',')
+                .append(row.firstName).append(',')
+                .append(row.lastName).append(',')
+                .append(row.dob).append(',')
+                .append(row.className).append(',')
+                .append(row.score).append('\n');
+    }
+
+    // 1-based ID of the row at index; a bijection on 0..rowCount-1 when IDs are shuffled
+    private long studentIdFor(long index, long rowCount) {
+        if (!profile.isShuffledIds() || rowCount < 3) {
+            return index + 1;
+        }
+        long[] shuffle = lastShuffle;
+        if (shuffle[0] != rowCount) {
+            shuffle = new long[]{rowCount, shuffleMultiplier(rowCount)};
+            lastShuffle = shuffle;
+        }
+        return (index * shuffle[1]) % rowCount + 1;
+    }
+
+    // A multiplier coprime to rowCount, so (index * m) mod rowCount visits every index once
+    private static long shuffleMultiplier(long rowCount) {
+        long multiplier = (long) (rowCount * 0.6180339887) | 1;
+        while (gcd(multiplier, rowCount) != 1) {
+            multiplier += 2;
+        }
+        return multiplier;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private int sampleClass(SplittableRandom random) {
+        int position = Arrays.binarySearch(classCdf, random.nextDouble());
+        return Math.min(position >= 0 ? position : -position - 1, classCdf.length - 1);
+    }
+
+    private int nextScore(SplittableRandom random) {
+        int min = profile.getMinScore();
+        int max = profile.getMaxScore();
+        if (profile.getScoreStdDev() == 0) {
+            return min + random.nextInt(max - min + 1);
+        }
+        long score = Math.round(profile.getScoreMean() + random.nextGaussian() * profile.getScoreStdDev());
+        return (int) Math.max(min, Math.min(max, score));
+    }
+
+    // Each invalid row breaks exactly one column rule of the students table
+    private static void breakRow(Row row, SplittableRandom random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                // Outside the 0-100 score check
+                row.score = 101 + random.nextInt(50);
+                break;
+            case 1:
+                // Longer than first_name's 50 characters
+                row.firstName = row.firstName + "X".repeat(51);
+                break;
+            case 2:
+                // Longer than class_name's 20 characters
+                row.className = row.className + "-UNASSIGNED-SECTION";
+                break;
+            default:
+                // Not a date
+                row.dob = "2005-02-30";
+                break;
+        }
+    }
+
+    private static String[] generateNamePool(WorkloadProfile profile, long seed) {
+        String[] names = new String[profile.getNamePoolSize()];
+        SplittableRandom random = new SplittableRandom(seed);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        int lengthRange = profile.getMaxNameLength() - profile.getMinNameLength() + 1;
+
+        for (int i = 0; i < names.length; i++) {
+            int length = profile.getMinNameLength() + random.nextInt(lengthRange);
+            StringBuilder name = new StringBuilder(length);
+
+            // First character uppercase
+            name.append(alphabet.charAt(random.nextInt(26)));
+
+            // Remaining characters lowercase
+            for (int j = 1; j < length; j++) {
+                name.append((char) ('a' + random.nextInt(26)));
+            }
+
+            names[i] = name.toString();
+        }
+
+        return names;
+    }
+
+    private static String[] generateClassNames(WorkloadProfile profile) {
+        String[] names = new String[profile.getClassCount()];
+        int width = profile.getClassNameLength();
+        for (int i = 0; i < names.length; i++) {
+            names[i] = width > 0
+                    ? "Class" + String.format("%0" + (width - "Class".length()) + "d", i + 1)
+                    : "Class" + (i + 1);
+        }
+        return names;
+    }
+
+    // Cumulative Zipf(s) distribution over n classes: class k has weight 1 / (k + 1)^s
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            total += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = total;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= total;
+        }
+        return cdf;
+    }
+
+    private static String[] generateDatePool(LocalDate first, LocalDate last) {
+        long startEpochDay = first.toEpochDay();
+        String[] dates = new String[(int) (last.toEpochDay() - startEpochDay + 1)];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = LocalDate.ofEpochDay(startEpochDay + i).toString();
+        }
+        return dates;
+    }
+}
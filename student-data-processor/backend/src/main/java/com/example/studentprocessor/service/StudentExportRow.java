@@ -0,0 +1,38 @@
+package com.example.studentprocessor.service;
+
+import com.example.studentprocessor.entity.Student;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * One student as the report writers need it: plain values mapped straight from the result set,
+ * with no managed entity behind it. The date of birth is kept as its ISO text.
+ */
+final class StudentExportRow {
+
+    static final String COLUMNS = "student_id, first_name, last_name, dob, class_name, score";
+
+    // Postgres renders a date column as yyyy-MM-dd, the same text LocalDate.toString() gives
+    static final RowMapper<StudentExportRow> MAPPER = (rs, rowNum) -> new StudentExportRow(
+            rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getInt(6));
+
+    final long studentId;
+    final String firstName;
+    final String lastName;
+    final String dob;
+    final String className;
+    final int score;
+
+    StudentExportRow(long studentId, String firstName, String lastName, String dob, String className, int score) {
+        this.studentId = studentId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.dob = dob;
+        this.className = className;
+        this.score = score;
+    }
+
+    static StudentExportRow of(Student student) {
+        return new StudentExportRow(student.getStudentId(), student.getFirstName(), student.getLastName(),
+                student.getDob().toString(), student.getClassName(), student.getScore());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.studentprocessor.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects the cells of one sheet row, applies the column transforms and hands each complete
+ * data row to the listener. Shared by the XLSX (SAX) and XLS (record event) readers so both
+ * produce identical rows.
+ *
+ * The first row of each sheet is the header: its cells are used to compile the ColumnMapping
+ * once per sheet, and every following cell goes straight through the compiled handler for its
+ * column. Sheets after the first are only read if at least one header name matches the mapping,
+ * so rolled-over data sheets are picked up but unrelated sheets are not.
+ */
+class StudentRowAssembler {
+
+    private final StreamingExcelToCsvService.RowListener listener;
+    private final ColumnMapping mapping;
+
+    private ColumnMapping.Compiled compiled;
+    private Map<Integer, String> headerCells = new HashMap<>();
+    private String[] currentRowData;
+    private int rowCount = 0;
+    private int sheetCount = 0;
+    private boolean skippingSheet;
+    private long estimatedRows = 0;
+
+    StudentRowAssembler(StreamingExcelToCsvService.RowListener listener, ColumnMapping mapping) {
+        this.listener = listener;
+        this.mapping = mapping;
+    }
+
+    int getRecordCount() {
+        return rowCount;
+    }
+
+    // Sheet size from the XLSX dimension ref ("A1:F2000001"); the header row is not counted
+    void rowCountEstimate(String dimensionRef) {
+        if (dimensionRef == null) return;
+        String lastCell = dimensionRef.substring(dimensionRef.indexOf(':') + 1);
+        int digits = 0;
+        while (digits < lastCell.length() && !Character.isDigit(lastCell.charAt(digits))) {
+            digits++;
+        }
+        try {
+            rowCountEstimate(Long.parseLong(lastCell.substring(digits)));
+        } catch (NumberFormatException e) {
+            // Dimension is only a hint
+        }
+    }
+
+    // Sheet estimates add up, so the total grows as later sheets are reached
+    void rowCountEstimate(long sheetRows) {
+        estimatedRows += Math.max(0, sheetRows - 1);
+        listener.onRowCountEstimate(estimatedRows);
+    }
+
+    void startSheet() {
+        sheetCount++;
+        compiled = null;
+        headerCells = new HashMap<>();
+        skippingSheet = false;
+    }
+
+    void startRow() {
+        if (compiled == null || skippingSheet) {
+            return;
+        }
+        // Reset row data for new row
+        currentRowData = new String[compiled.getOutputWidth()];
+        for (int i = 0; i < currentRowData.length; i++) {
+            currentRowData[i] = "";
+        }
+    }
+
+    void cell(int columnIndex, String value) {
+        if (skippingSheet) {
+            return;
+        }
+        if (compiled == null) {
+            headerCells.put(columnIndex, value);
+        } else {
+            compiled.accept(columnIndex, value, currentRowData);
+        }
+    }
+
+    void endRow() throws IOException {
+        if (skippingSheet) {
+            return;
+        }
+        if (compiled == null) {
+            compiled = mapping.compile(headerCells);
+            headerCells = null;
+            if (sheetCount > 1 && compiled.getMatchedByName() == 0) {
+                System.out.println("Sheet " + sheetCount + ": no matching headers, skipped");
+                skippingSheet = true;
+            } else {
+                System.out.println("Sheet " + sheetCount + " column mapping: " + compiled.getDescription());
+            }
+            return;
+        }
+
+        listener.onRow(currentRowData);
+        rowCount++;
+
+        // Progress logging every 100,000 rows
+        if (rowCount % 100000 == 0) {
+            System.out.println("Processed " + rowCount + " rows...");
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.studentprocessor.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads synthetic students straight into the students table, without an Excel or CSV file in
+ * between. Rows come from the same pools and distributions as DataGenerationService and are
+ * streamed into Postgres with COPY, one COPY per chunk, by several workers in parallel.
+ *
+ * Each chunk commits on its own, so a failed load keeps the chunks that finished before it.
+ * Duplicate and invalid rows of the workload profile would be rejected by the table
+ * constraints, so they are skipped and counted instead of loaded.
+ */
+@Service
+public class SyntheticDataLoadService {
+
+    static final String COPY_SQL =
+            "COPY students (student_id, first_name, last_name, dob, class_name, score) FROM STDIN (FORMAT csv)";
+
+    private static final int CHUNK_ROWS = ParallelXlsxGenerator.CHUNK_ROWS;
+    private static final int COPY_BUFFER_CHARS = 64 * 1024;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Each worker holds one pooled connection while it copies, so keep this below the pool size
+    @Value("${app.generation.load-parallelism:4}")
+    private int loadParallelism = 4;
+
+    // Highest student ID handed out by this instance, so concurrent loads get disjoint ranges
+    private long lastReservedId = 0;
+
+    @Autowired
+    public SyntheticDataLoadService(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                                    ApplicationEventPublisher eventPublisher) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Generates recordCount students with IDs following the current maximum student ID and
+     * copies them into the database using the value distributions of the given profile. With a
+     * seed the generated rows are reproducible.
+     *
+     * If a job is given it receives progress; cancelling it aborts the running chunks (their
+     * COPY is rolled back) while chunks that already committed stay loaded.
+     */
+    public Map<String, Object> loadStudents(int recordCount, Long seed, WorkloadProfile profile,
+                                            BackgroundJob job) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        long rowSeed = seed != null ? seed : ThreadLocalRandom.current().nextLong();
+        long firstId = reserveIds(recordCount);
+        int workers = Math.max(1, loadParallelism);
+        StudentDataSynthesizer synthesizer = StudentDataSynthesizer.forProfile(profile);
+
+        if (job != null) {
+            job.setTotal(recordCount);
+        }
+
+        System.out.printf("Loading %,d synthetic students (IDs %d-%d, profile %s) with %d workers, seed %d%n",
+                recordCount, firstId, firstId + recordCount - 1, profile.getCode(), workers, rowSeed);
+
+        SplittableRandom root = new SplittableRandom(rowSeed);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        AtomicLong loaded = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        // Classes and scores of the committed chunks, for the in-memory score histograms
+        ClassScoreCounts inserted = new ClassScoreCounts();
+        List<Future<?>> chunks = new ArrayList<>();
+
+        try {
+            for (long offset = 0; offset < recordCount; offset += CHUNK_ROWS) {
+                long firstIndex = offset;
+                long lastIndex = Math.min(offset + CHUNK_ROWS, recordCount) - 1;
+                SplittableRandom random = root.split();
+                chunks.add(executor.submit(() -> {
+                    long copied = copyChunk(synthesizer, firstIndex, lastIndex, recordCount, firstId - 1, random, job,
+                            inserted);
+                    skipped.addAndGet(lastIndex - firstIndex + 1 - copied);
+                    long total = loaded.addAndGet(copied);
+                    if (total % (CHUNK_ROWS * 16L) < copied) {
+                        System.out.printf("Loaded %,d/%,d students%n", total, recordCount);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> chunk : chunks) {
+                await(chunk);
+            }
+        } finally {
+            executor.shutdownNow();
+            // Chunks commit independently, so a failed or cancelled load may have added rows too
+            // A chunk still running after shutdownNow may commit later, so its rows can't be counted here
+            boolean insertedComplete = chunks.stream().allMatch(Future::isDone);
+            eventPublisher.publishEvent(new StudentDataChangedEvent("synthetic-load",
+                    insertedComplete ? inserted : null, loaded.get()));
+        }
+
+        double seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.printf("Loaded %,d students (%,d skipped) in %.2f seconds (%.0f rows/second)%n",
+                loaded.get(), skipped.get(), seconds, recordCount / Math.max(seconds, 0.001));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("recordsLoaded", loaded.get());
+        result.put("recordsSkipped", skipped.get());
+        result.put("profile", profile.getCode());
+        result.put("firstStudentId", firstId);
+        result.put("lastStudentId", firstId + recordCount - 1);
+        result.put("seed", rowSeed);
+        result.put("workers", workers);
+        result.put("processingTimeSeconds", seconds);
+        result.put("rowsPerSecond", Math.round(recordCount / Math.max(seconds, 0.001)));
+        return result;
+    }
+
+    private synchronized long reserveIds(int count) {
+        Long maxInDatabase = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(student_id), 0) FROM students", Long.class);
+        long first = Math.max(maxInDatabase != null ? maxInDatabase : 0, lastReservedId) + 1;
+        lastReservedId = first + count - 1;
+        return first;
+    }
+
+    // Copies the rows at firstIndex..lastIndex of the load and returns how many were copied;
+    // their classes and scores are added to inserted once the chunk has committed
+    private long copyChunk(StudentDataSynthesizer synthesizer, long firstIndex, long lastIndex, long rowCount,
+                           long idOffset, SplittableRandom random, BackgroundJob job,
+                           ClassScoreCounts inserted) throws SQLException {
+        if (job != null) {
+            job.checkpoint(0);
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                StringBuilder csv = new StringBuilder(COPY_BUFFER_CHARS + 256);
+                StudentDataSynthesizer.Row row = new StudentDataSynthesizer.Row();
+                ClassScoreCounts chunkCounts = new ClassScoreCounts();
+                long copied = 0;
+                for (long index = firstIndex; index <= lastIndex; index++) {
+                    synthesizer.next(row, index, rowCount, random);
+                    if (row.duplicate || row.invalid) {
+                        continue;
+                    }
+                    StudentDataSynthesizer.appendCsvRow(csv, row, idOffset);
+                    chunkCounts.add(row.className, row.score);
+                    copied++;
+                    if (csv.length() >= COPY_BUFFER_CHARS) {
+                        writeToCopy(copy, csv);
+                    }
+                    // Progress is only recorded once the chunk commits; cancellation is checked as we go
+                    if (job != null && job.isCancelRequested()) {
+                        throw new CancellationException("Job " + job.getId() + " cancelled");
+                    }
+                }
+                writeToCopy(copy, csv);
+                copy.endCopy();
+                inserted.addAll(chunkCounts);
+                if (job != null) {
+                    job.addProcessed(lastIndex - firstIndex + 1);
+                }
+                return copied;
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        }
+    }
+
+    private static void writeToCopy(CopyIn copy, StringBuilder csv) throws SQLException {
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        csv.setLength(0);
+    }
+
+    private static void await(Future<?> chunk) throws SQLException {
+        try {
+            chunk.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new SQLException("Loading chunk failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Load interrupted", e);
+        }
+    }
+}
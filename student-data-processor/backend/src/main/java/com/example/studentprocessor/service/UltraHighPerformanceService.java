@@ -7,6 +7,7 @@ import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -29,6 +30,7 @@ public class UltraHighPerformanceService {
 
     private final StudentRepository studentRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
     private final ExecutorService parallelProcessingExecutor;
     private final AtomicInteger progressCounter = new AtomicInteger(0);
     private final AtomicInteger processedBatches = new AtomicInteger(0);
@@ -37,9 +39,11 @@ public class UltraHighPerformanceService {
 
     @Autowired
     public UltraHighPerformanceService(StudentRepository studentRepository,
-                                     JdbcTemplate jdbcTemplate) {
+                                     JdbcTemplate jdbcTemplate,
+                                     ApplicationEventPublisher eventPublisher) {
         this.studentRepository = studentRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
         // Create optimized thread pool for parallel processing (4 threads max)
         this.parallelProcessingExecutor = Executors.newFixedThreadPool(4);
     }
@@ -59,6 +63,9 @@ public class UltraHighPerformanceService {
         AtomicInteger totalProcessed = new AtomicInteger(0);
         AtomicInteger totalNew = new AtomicInteger(0);
         AtomicInteger totalSkipped = new AtomicInteger(0);
+        // Classes and scores of the committed rows, for the in-memory score histograms
+        ClassScoreCounts inserted = new ClassScoreCounts();
+        boolean insertedComplete = false;
         int batchSize = 3000; // Optimized batch size for 3x speed improvement
         List<String[]> currentBatch = new ArrayList<>(batchSize);
         List<CompletableFuture<BatchResult>> futures = new ArrayList<>();
@@ -83,7 +90,7 @@ public class UltraHighPerformanceService {
                     currentBatch.clear();
 
                     CompletableFuture<BatchResult> future = CompletableFuture.supplyAsync(() ->
-                        processBatchUltraFast(batchToProcess, futures.size() + 1), parallelProcessingExecutor);
+                        processBatchUltraFast(batchToProcess, futures.size() + 1, inserted), parallelProcessingExecutor);
 
                     futures.add(future);
 
@@ -100,7 +107,7 @@ public class UltraHighPerformanceService {
             // Process final partial batch synchronously
             if (!currentBatch.isEmpty()) {
                 System.out.println("📦 Processing final batch of " + currentBatch.size() + " records...");
-                BatchResult result = processBatchUltraFast(currentBatch, futures.size() + 1);
+                BatchResult result = processBatchUltraFast(currentBatch, futures.size() + 1, inserted);
                 totalProcessed.addAndGet(result.processed);
                 totalNew.addAndGet(result.newRecords);
                 totalSkipped.addAndGet(result.skipped);
@@ -122,11 +129,17 @@ public class UltraHighPerformanceService {
             if (cancelRequested) {
                 System.out.println("🛑 Cancellation requested - saved " + totalProcessed.get() + " records");
             }
+            // A batch that timed out above may still insert rows after the event is published
+            insertedComplete = futures.stream().allMatch(CompletableFuture::isDone);
 
         } catch (Exception e) {
             System.out.println("❌ Error during parallel upload: " + e.getMessage());
             e.printStackTrace();
             throw new IOException("Error during parallel upload: " + e.getMessage(), e);
+        } finally {
+            // Batches commit on their own, so even a failed upload may have changed the data
+            eventPublisher.publishEvent(new StudentDataChangedEvent("csv-upload",
+                    insertedComplete ? inserted : null, totalNew.get()));
         }
 
         long endTime = System.currentTimeMillis();
@@ -206,7 +219,7 @@ public class UltraHighPerformanceService {
         return studentRepository.findExistingStudentIds(csvStudentIds);
     }
 
-    private BatchResult processBatchUltraFast(List<String[]> batchRecords, int batchNumber) {
+    private BatchResult processBatchUltraFast(List<String[]> batchRecords, int batchNumber, ClassScoreCounts inserted) {
         BatchResult result = new BatchResult();
         List<Student> studentsToInsert = new ArrayList<>(batchRecords.size());
 
@@ -255,6 +268,7 @@ public class UltraHighPerformanceService {
         if (!studentsToInsert.isEmpty()) {
             try {
                 insertBatchTransactional(studentsToInsert);
+                inserted.addAll(studentsToInsert);
                 System.out.println("✅ Batch " + batchNumber + ": " + studentsToInsert.size() +
                                  " records inserted [Thread: " + Thread.currentThread().getName() + "]");
             } catch (Exception e) {
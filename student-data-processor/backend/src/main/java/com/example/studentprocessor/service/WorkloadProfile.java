@@ -0,0 +1,143 @@
+package com.example.studentprocessor.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Named data shapes for the synthetic student generator. DEFAULT reproduces the original narrow,
+ * uniform data; the others add skew, wide value ranges, long strings and dirty rows so ingest,
+ * search and export benchmarks see something closer to production data.
+ */
+public enum WorkloadProfile {
+
+    DEFAULT("default", "5 uniform classes, scores 55-75, 3-8 letter names, sequential IDs",
+            5, 0.0, 55, 75, 0, 0, 1000, 3, 8, 0, 0.0, 0.0, false),
+
+    REALISTIC("realistic", "2,000 Zipfian classes, scores normal around 65 over 0-100, "
+            + "1% duplicate and 0.5% invalid rows, out-of-order IDs",
+            2000, 1.07, 0, 100, 65, 15, 20000, 3, 14, 0, 0.01, 0.005, true),
+
+    SKEWED("skewed", "10,000 classes with heavy Zipf skew, uniform 0-100 scores",
+            10000, 1.5, 0, 100, 0, 0, 5000, 3, 10, 0, 0.0, 0.0, false),
+
+    STRESS("stress", "Max-length names (50) and class names (20), 1,000 Zipfian classes, "
+            + "5% duplicate and 5% invalid rows, out-of-order IDs",
+            1000, 1.0, 0, 100, 0, 0, 1000, 50, 50, 20, 0.05, 0.05, true);
+
+    private final String code;
+    private final String description;
+    private final int classCount;
+    private final double classZipfExponent; // 0 = uniform class sizes
+    private final int minScore;
+    private final int maxScore;
+    private final int scoreMean; // centre of the normal scores, unused when they are uniform
+    private final int scoreStdDev; // 0 = uniform between min and max, otherwise normal around scoreMean, clamped to min..max
+    private final int namePoolSize;
+    private final int minNameLength;
+    private final int maxNameLength;
+    private final int classNameLength; // 0 = "Class<n>", otherwise zero-padded to exactly this length
+    private final double duplicateRate;
+    private final double invalidRate;
+    private final boolean shuffledIds;
+
+    WorkloadProfile(String code, String description, int classCount, double classZipfExponent,
+                    int minScore, int maxScore, int scoreMean, int scoreStdDev, int namePoolSize, int minNameLength,
+                    int maxNameLength, int classNameLength, double duplicateRate, double invalidRate,
+                    boolean shuffledIds) {
+        this.code = code;
+        this.description = description;
+        this.classCount = classCount;
+        this.classZipfExponent = classZipfExponent;
+        this.minScore = minScore;
+        this.maxScore = maxScore;
+        this.scoreMean = scoreMean;
+        this.scoreStdDev = scoreStdDev;
+        this.namePoolSize = namePoolSize;
+        this.minNameLength = minNameLength;
+        this.maxNameLength = maxNameLength;
+        this.classNameLength = classNameLength;
+        this.duplicateRate = duplicateRate;
+        this.invalidRate = invalidRate;
+        this.shuffledIds = shuffledIds;
+    }
+
+    public static WorkloadProfile fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT;
+        }
+        for (WorkloadProfile profile : values()) {
+            if (profile.code.equalsIgnoreCase(value.trim())) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown workload profile '" + value + "'. Available: " + describeAll().keySet());
+    }
+
+    public static Map<String, String> describeAll() {
+        Map<String, String> profiles = new LinkedHashMap<>();
+        for (WorkloadProfile profile : values()) {
+            profiles.put(profile.code, profile.description);
+        }
+        return profiles;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public double getClassZipfExponent() {
+        return classZipfExponent;
+    }
+
+    public int getMinScore() {
+        return minScore;
+    }
+
+    public int getMaxScore() {
+        return maxScore;
+    }
+
+    public int getScoreMean() {
+        return scoreMean;
+    }
+
+    public int getScoreStdDev() {
+        return scoreStdDev;
+    }
+
+    public int getNamePoolSize() {
+        return namePoolSize;
+    }
+
+    public int getMinNameLength() {
+        return minNameLength;
+    }
+
+    public int getMaxNameLength() {
+        return maxNameLength;
+    }
+
+    public int getClassNameLength() {
+        return classNameLength;
+    }
+
+    public double getDuplicateRate() {
+        return duplicateRate;
+    }
+
+    public double getInvalidRate() {
+        return invalidRate;
+    }
+
+    public boolean isShuffledIds() {
+        return shuffledIds;
+    }
+}
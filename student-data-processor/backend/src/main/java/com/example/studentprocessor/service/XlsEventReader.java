@@ -0,0 +1,163 @@
+package com.example.studentprocessor.service;
+
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener;
+import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord;
+import org.apache.poi.hssf.record.*;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Streams the worksheets of a legacy .xls (BIFF8) workbook through the HSSF event model.
+ *
+ * Records are handed to a StudentRowAssembler as they are read, so the workbook is never
+ * materialised as HSSFWorkbook/HSSFRow/HSSFCell objects. Only the shared string table (capped
+ * by the BIFF8 format) is kept in memory.
+ */
+class XlsEventReader implements HSSFListener {
+
+    private static final DateTimeFormatter ISO_DATE = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    private final StudentRowAssembler rows;
+    private final FormatTrackingHSSFListener formatListener;
+
+    private SSTRecord sstRecord;
+    private int sheetIndex = -1;
+    private boolean rowOpen;
+
+    // Formula string results arrive in the StringRecord that follows the FormulaRecord
+    private boolean outputNextStringRecord;
+    private int nextStringColumn;
+
+    XlsEventReader(StudentRowAssembler rows) {
+        this.rows = rows;
+        this.formatListener = new FormatTrackingHSSFListener(new MissingRecordAwareHSSFListener(this));
+    }
+
+    void process(String xlsFilePath) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(new File(xlsFilePath), true)) {
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(formatListener);
+            new HSSFEventFactory().processWorkbookEvents(request, fs);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void processRecord(org.apache.poi.hssf.record.Record record) {
+        switch (record.getSid()) {
+            case BOFRecord.sid:
+                if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                    sheetIndex++;
+                    rowOpen = false;
+                    rows.startSheet();
+                }
+                break;
+
+            case DimensionsRecord.sid:
+                if (inWorksheet()) {
+                    // getLastRow() is one past the last row index, i.e. the row count
+                    rows.rowCountEstimate(((DimensionsRecord) record).getLastRow());
+                }
+                break;
+
+            case SSTRecord.sid:
+                sstRecord = (SSTRecord) record;
+                break;
+
+            case LabelSSTRecord.sid:
+                LabelSSTRecord labelSst = (LabelSSTRecord) record;
+                if (sstRecord != null) {
+                    cell(labelSst.getColumn(), sstRecord.getString(labelSst.getSSTIndex()).getString());
+                }
+                break;
+
+            case LabelRecord.sid:
+                LabelRecord label = (LabelRecord) record;
+                cell(label.getColumn(), label.getValue());
+                break;
+
+            case NumberRecord.sid:
+                NumberRecord number = (NumberRecord) record;
+                cell(number.getColumn(), formatNumber(number.getValue(), number));
+                break;
+
+            case BoolErrRecord.sid:
+                BoolErrRecord boolErr = (BoolErrRecord) record;
+                if (boolErr.isBoolean()) {
+                    cell(boolErr.getColumn(), boolErr.getBooleanValue() ? "TRUE" : "FALSE");
+                }
+                break;
+
+            case FormulaRecord.sid:
+                FormulaRecord formula = (FormulaRecord) record;
+                if (formula.hasCachedResultString()) {
+                    outputNextStringRecord = true;
+                    nextStringColumn = formula.getColumn();
+                } else {
+                    cell(formula.getColumn(), formatNumber(formula.getValue(), formula));
+                }
+                break;
+
+            case StringRecord.sid:
+                if (outputNextStringRecord) {
+                    cell(nextStringColumn, ((StringRecord) record).getString());
+                    outputNextStringRecord = false;
+                }
+                break;
+
+            default:
+                if (record instanceof LastCellOfRowDummyRecord && inWorksheet()) {
+                    endRow();
+                }
+                break;
+        }
+    }
+
+    private boolean inWorksheet() {
+        return sheetIndex >= 0;
+    }
+
+    private void cell(int column, String value) {
+        if (!inWorksheet()) {
+            return;
+        }
+        if (!rowOpen) {
+            rows.startRow();
+            rowOpen = true;
+        }
+        rows.cell(column, value);
+    }
+
+    private void endRow() {
+        if (!rowOpen) {
+            return;
+        }
+        rowOpen = false;
+        try {
+            rows.endRow();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Dates become ISO strings (DOB column); other numbers use Excel's own text form, e.g. 1.0 -> "1"
+    private String formatNumber(double value, CellValueRecordInterface cell) {
+        int formatIndex = formatListener.getFormatIndex(cell);
+        String formatString = formatListener.getFormatString(cell);
+        if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+            return DateUtil.getLocalDateTime(value).toLocalDate().format(ISO_DATE);
+        }
+        return NumberToTextConverter.toText(value);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.studentprocessor.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The fixed parts of a minimal xlsx package (content types, relationships, workbook, styles)
+ * for workbooks whose sheets are written by SheetXmlWriter.
+ */
+final class XlsxPackage {
+
+    // Rows per sheet allowed by the xlsx format, header included
+    static final int MAX_SHEET_ROWS = 1_048_576;
+
+    // Style 0 is the default; style 1 is the bold header on a light blue fill
+    private static final String STYLES = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+            + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+            + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+            + "<fills count=\"3\"><fill><patternFill patternType=\"none\"/></fill>"
+            + "<fill><patternFill patternType=\"gray125\"/></fill>"
+            + "<fill><patternFill patternType=\"solid\"><fgColor indexed=\"48\"/><bgColor indexed=\"64\"/></patternFill></fill></fills>"
+            + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+            + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+            + "<cellXfs count=\"2\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+            + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"2\" borderId=\"0\" xfId=\"0\" applyFont=\"1\" applyFill=\"1\"/></cellXfs>"
+            + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+            + "</styleSheet>";
+
+    private static final String ROOT_RELS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+            + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+            + "</Relationships>";
+
+    private XlsxPackage() {
+    }
+
+    static String dimension(int columns, long rows) {
+        return "<dimension ref=\"A1:" + ColumnMapping.columnName(Math.max(columns, 1) - 1) + Math.max(rows, 1) + "\"/>";
+    }
+
+    // Column widths in characters; <cols> goes between <dimension> and <sheetData>
+    static String cols(double[] widths) {
+        StringBuilder cols = new StringBuilder("<cols>");
+        for (int i = 0; i < widths.length; i++) {
+            cols.append("<col min=\"").append(i + 1).append("\" max=\"").append(i + 1)
+                    .append("\" width=\"").append(widths[i]).append("\" customWidth=\"1\"/>");
+        }
+        return cols.append("</cols>").toString();
+    }
+
+    // Zip entry of the n-th sheet (1-based)
+    static String sheetEntry(int sheetNumber) {
+        return "xl/worksheets/sheet" + sheetNumber + ".xml";
+    }
+
+    // Name of the n-th sheet of a rolled-over workbook: "Students", "Students (2)", ...
+    static String sheetName(String baseName, int sheetNumber) {
+        if (sheetNumber == 1) {
+            return baseName;
+        }
+        String suffix = " (" + sheetNumber + ")";
+        // Excel limits sheet names to 31 characters
+        return baseName.substring(0, Math.min(baseName.length(), 31 - suffix.length())) + suffix;
+    }
+
+    // Writes every part except the sheets themselves, which must be sheet1.xml ... sheetN.xml
+    static void writeWorkbookParts(ParallelDeflateZipOutputStream zip, List<String> sheetNames) throws IOException {
+        StringBuilder contentTypes = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        StringBuilder workbook = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>");
+        StringBuilder workbookRels = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+
+        for (int n = 1; n <= sheetNames.size(); n++) {
+            contentTypes.append("<Override PartName=\"/").append(sheetEntry(n))
+                    .append("\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            workbook.append("<sheet name=\"").append(escapeAttribute(sheetNames.get(n - 1)))
+                    .append("\" sheetId=\"").append(n).append("\" r:id=\"rId").append(n).append("\"/>");
+            workbookRels.append("<Relationship Id=\"rId").append(n)
+                    .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+                    .append(n).append(".xml\"/>");
+        }
+        contentTypes.append("</Types>");
+        workbook.append("</sheets></workbook>");
+        workbookRels.append("<Relationship Id=\"rId").append(sheetNames.size() + 1)
+                .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>")
+                .append("</Relationships>");
+
+        writeEntry(zip, "[Content_Types].xml", contentTypes.toString());
+        writeEntry(zip, "_rels/.rels", ROOT_RELS);
+        writeEntry(zip, "xl/workbook.xml", workbook.toString());
+        writeEntry(zip, "xl/_rels/workbook.xml.rels", workbookRels.toString());
+        writeEntry(zip, "xl/styles.xml", STYLES);
+    }
+
+    private static String escapeAttribute(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static void writeEntry(ParallelDeflateZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(name);
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
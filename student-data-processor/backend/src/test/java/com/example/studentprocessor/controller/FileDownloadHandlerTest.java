@@ -0,0 +1,182 @@
+package com.example.studentprocessor.controller;
+
+import jakarta.servlet.ServletOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileDownloadHandlerTest {
+
+    private static final String CONTENT = "0123456789abcdefghij"; // 20 bytes
+    private static final Instant MODIFIED = Instant.parse("2024-03-01T10:15:30Z");
+
+    private final FileDownloadHandler handler = new FileDownloadHandler();
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void createFile() throws IOException {
+        Path file = dir.resolve("report.csv");
+        Files.writeString(file, CONTENT, StandardCharsets.US_ASCII);
+        Files.setLastModifiedTime(file, FileTime.from(MODIFIED));
+    }
+
+    @Test
+    void parsesClosedRange() {
+        assertArrayEquals(new long[]{5, 9}, FileDownloadHandler.parseRange("bytes=5-9", 20));
+        assertArrayEquals(new long[]{5, 19}, FileDownloadHandler.parseRange("bytes=5-100", 20));
+    }
+
+    @Test
+    void parsesSuffixRange() {
+        assertArrayEquals(new long[]{15, 19}, FileDownloadHandler.parseRange("bytes=-5", 20));
+        // A suffix longer than the file is the whole file
+        assertArrayEquals(new long[]{0, 19}, FileDownloadHandler.parseRange("bytes=-50", 20));
+        assertNull(FileDownloadHandler.parseRange("bytes=-0", 20));
+        assertNull(FileDownloadHandler.parseRange("bytes=-5", 0));
+    }
+
+    @Test
+    void parsesOpenEndedRange() {
+        assertArrayEquals(new long[]{7, 19}, FileDownloadHandler.parseRange("bytes=7-", 20));
+        assertArrayEquals(new long[]{19, 19}, FileDownloadHandler.parseRange("bytes=19-", 20));
+    }
+
+    @Test
+    void rangeStartingAtOrPastTheEndIsUnsatisfiable() {
+        assertNull(FileDownloadHandler.parseRange("bytes=20-", 20));
+        assertNull(FileDownloadHandler.parseRange("bytes=25-30", 20));
+    }
+
+    @Test
+    void ignoresMultipleRangesAndBadSyntax() {
+        assertEquals(0, FileDownloadHandler.parseRange("bytes=0-1,5-6", 20).length);
+        assertEquals(0, FileDownloadHandler.parseRange("items=0-5", 20).length);
+        assertEquals(0, FileDownloadHandler.parseRange("bytes=5", 20).length);
+        assertEquals(0, FileDownloadHandler.parseRange("bytes=9-5", 20).length);
+        assertEquals(0, FileDownloadHandler.parseRange("bytes=a-b", 20).length);
+    }
+
+    @Test
+    void servesPartialContent() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-4");
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 16-19/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("ghij", response.getContentAsString());
+    }
+
+    @Test
+    void answers416ForUnsatisfiableRange() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-");
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void servesWholeFileForMultipleRanges() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,5-6");
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void ifRangeWithMatchingEtagServesRange() throws IOException {
+        String etag = serve(get()).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("0123", response.getContentAsString());
+    }
+
+    @Test
+    void ifRangeWithOtherEtagServesWholeFile() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void ifRangeWithDateServesRangeOnlyWhenUnchanged() throws IOException {
+        MockHttpServletRequest current = get();
+        current.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        current.addHeader(HttpHeaders.IF_RANGE, httpDate(MODIFIED));
+        MockHttpServletResponse partial = serve(current);
+        assertEquals(206, partial.getStatus());
+        assertEquals("abcdefghij", partial.getContentAsString());
+
+        MockHttpServletRequest stale = get();
+        stale.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        stale.addHeader(HttpHeaders.IF_RANGE, httpDate(MODIFIED.minusSeconds(60)));
+        MockHttpServletResponse whole = serve(stale);
+        assertEquals(200, whole.getStatus());
+        assertEquals(CONTENT, whole.getContentAsString());
+    }
+
+    @Test
+    void failsWhenFileShrinksDuringDownload() {
+        Path file = dir.resolve("report.csv");
+        // Truncates the file once the headers are set, as a concurrent rewrite would
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                    raf.setLength(8);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return super.getOutputStream();
+            }
+        };
+
+        IOException e = assertThrows(IOException.class,
+                () -> handler.serve(dir.toString(), "report.csv", get(), response));
+        assertTrue(e.getMessage().contains("sent 8 of 20 bytes"), e.getMessage());
+    }
+
+    private MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/api/reports/download/report.csv");
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        handler.serve(dir.toString(), "report.csv", request, response);
+        return response;
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atZone(ZoneOffset.UTC));
+    }
+}
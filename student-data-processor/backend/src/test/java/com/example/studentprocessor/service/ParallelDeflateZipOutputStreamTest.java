@@ -0,0 +1,204 @@
+package com.example.studentprocessor.service;
+
+import com.example.studentprocessor.config.AsyncConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelDeflateZipOutputStreamTest {
+
+    private static final int BLOCK = ParallelDeflateZipOutputStream.BLOCK_SIZE;
+
+    private static ExecutorService deflaters;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void startDeflaters() {
+        deflaters = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void stopDeflaters() {
+        deflaters.shutdownNow();
+    }
+
+    @Test
+    void roundTripsMultiBlockEntriesInline() throws IOException {
+        assertRoundTrip(6, null);
+    }
+
+    @Test
+    void roundTripsMultiBlockEntriesOnExecutor() throws IOException {
+        assertRoundTrip(1, deflaters);
+    }
+
+    @Test
+    void roundTripsStoredEntries() throws IOException {
+        assertRoundTrip(0, deflaters);
+    }
+
+    @Test
+    void dictionaryCarriesMatchesAcrossBlocks() throws IOException {
+        // Random bytes, except that every block starts with the 16 KB that ended the previous one.
+        // Only the dictionary primed from the previous block can match those, so an eighth of the
+        // data compresses away if (and only if) the priming is right.
+        int repeat = 16 * 1024;
+        byte[] data = new byte[BLOCK * 4];
+        new Random(7).nextBytes(data);
+        for (int start = BLOCK; start < data.length; start += BLOCK) {
+            System.arraycopy(data, start - repeat, data, start, repeat);
+        }
+
+        Map<String, byte[]> entries = Map.of("primed.bin", data);
+        byte[] zip = write(entries, 6, deflaters);
+
+        assertEntries(zip, entries);
+        assertTrue(zip.length < data.length * 93L / 100, "Block starts were not matched against the dictionary: " + zip.length);
+    }
+
+    @Test
+    void abortLeavesNoCentralDirectory() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        ParallelDeflateZipOutputStream zip = new ParallelDeflateZipOutputStream(target, 6, deflaters);
+        zip.putNextEntry("complete.txt");
+        zip.write(text(BLOCK, 1));
+        zip.putNextEntry("partial.txt");
+        zip.write(text(BLOCK * 2 + 100, 2));
+        zip.abort();
+        zip.close();
+
+        Path file = tempDir.resolve("aborted.zip");
+        Files.write(file, target.toByteArray());
+        assertThrows(ZipException.class, () -> new ZipFile(file.toFile()).close());
+    }
+
+    @Test
+    void blockRejectedAfterShutdownFailsTheWrite() throws IOException {
+        ThreadPoolTaskExecutor stopped = (ThreadPoolTaskExecutor) new AsyncConfig().xlsxDeflateExecutor();
+        stopped.shutdown();
+
+        ParallelDeflateZipOutputStream zip = new ParallelDeflateZipOutputStream(new ByteArrayOutputStream(), 1, stopped);
+        zip.putNextEntry("sheet.xml");
+        assertThrows(IOException.class, () -> zip.write(text(BLOCK, 3)));
+        zip.abort();
+    }
+
+    @Test
+    void rejectsEntriesOverZip32Limit() throws IOException {
+        ParallelDeflateZipOutputStream zip = new ParallelDeflateZipOutputStream(OutputStream.nullOutputStream(), 0, null);
+        zip.putNextEntry("huge.bin");
+        byte[] buffer = new byte[8 * BLOCK];
+        long limit = 0xFFFFFFFFL;
+        for (long written = 0; written <= limit; written += buffer.length) {
+            zip.write(buffer);
+        }
+        assertThrows(ZipException.class, zip::closeEntry);
+        zip.abort();
+    }
+
+    private void assertRoundTrip(int level, ExecutorService executor) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("empty.xml", new byte[0]);
+        entries.put("one-byte.xml", new byte[]{'x'});
+        entries.put("exact-block.xml", text(BLOCK, 1));
+        entries.put("exact-blocks.xml", text(BLOCK * 3, 2));
+        entries.put("block-plus-one.xml", text(BLOCK + 1, 3));
+        entries.put("multi-block.xml", text(BLOCK * 5 + 12345, 4));
+        entries.put("xl/worksheets/sheet1.xml", text(BLOCK - 1, 5));
+
+        byte[] zip = write(entries, level, executor);
+        assertEntries(zip, entries);
+    }
+
+    private static byte[] write(Map<String, byte[]> entries, int level, ExecutorService executor) throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (ParallelDeflateZipOutputStream zip = new ParallelDeflateZipOutputStream(target, level, executor)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(entry.getKey());
+                // Uneven writes, so blocks fill across several calls
+                byte[] data = entry.getValue();
+                for (int off = 0; off < data.length; off += 50_000) {
+                    zip.write(data, off, Math.min(50_000, data.length - off));
+                }
+            }
+        }
+        return target.toByteArray();
+    }
+
+    private void assertEntries(byte[] zip, Map<String, byte[]> expected) throws IOException {
+        // Streaming reader: sizes and CRCs come from the data descriptors
+        Map<String, byte[]> streamed = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                byte[] data = in.readAllBytes();
+                assertEquals(crc(data), entry.getCrc(), entry.getName());
+                assertEquals(data.length, entry.getSize(), entry.getName());
+                streamed.put(entry.getName(), data);
+            }
+        }
+        assertEquals(expected.keySet(), streamed.keySet());
+
+        // Central directory reader
+        Path file = tempDir.resolve("roundtrip.zip");
+        Files.write(file, zip);
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            assertEquals(expected.size(), zipFile.size());
+            for (Map.Entry<String, byte[]> e : expected.entrySet()) {
+                ZipEntry entry = zipFile.getEntry(e.getKey());
+                assertNotNull(entry, e.getKey());
+                assertEquals(crc(e.getValue()), entry.getCrc(), e.getKey());
+                assertEquals(e.getValue().length, entry.getSize(), e.getKey());
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    assertArrayEquals(e.getValue(), in.readAllBytes(), e.getKey());
+                }
+                assertArrayEquals(e.getValue(), streamed.get(e.getKey()), e.getKey());
+            }
+        }
+    }
+
+    // Sheet-like XML, compressible but not trivially so
+    private static byte[] text(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(length + 100);
+        int row = 1;
+        while (sb.length() < length) {
+            sb.append("<row r=\"").append(row++).append("\"><c t=\"inlineStr\"><is><t>Student")
+                    .append(random.nextInt(100_000)).append("</t></is></c><c><v>")
+                    .append(random.nextInt(101)).append("</v></c></row>");
+        }
+        sb.setLength(length);
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+}
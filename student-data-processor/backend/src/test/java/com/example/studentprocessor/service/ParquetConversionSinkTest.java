@@ -0,0 +1,148 @@
+package com.example.studentprocessor.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads ParquetConversionSink output back with DuckDB, whose Parquet reader shares no code with
+ * the sink, so the hand-written file layout and Thrift metadata are checked against a real reader.
+ */
+class ParquetConversionSinkTest {
+
+    private static final String[] HEADERS = {"studentId", "firstName", "lastName", "DOB", "class", "score"};
+    // Spans three row groups, the last one partial
+    private static final int ROWS = ParquetConversionSink.ROW_GROUP_ROWS * 2 + 1234;
+    private static final long BIG_ID = 5_000_000_000L;
+    private static final LocalDate BASE_DATE = LocalDate.of(1999, 12, 31);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void duckDbReadsSchemaRowsNullsAndValues() throws IOException, SQLException {
+        Path file = tempDir.resolve("students.parquet");
+        try (ConversionSink sink = ConversionOutputFormat.PARQUET.openSink(file)) {
+            sink.writeHeader(HEADERS);
+            for (int i = 1; i <= ROWS; i++) {
+                sink.onRow(row(i));
+            }
+        }
+
+        try (Connection connection = DriverManager.getConnection("jdbc:duckdb:");
+             Statement statement = connection.createStatement()) {
+            String source = "read_parquet('" + file.toString().replace("'", "''") + "')";
+
+            Map<String, String> types = new LinkedHashMap<>();
+            try (ResultSet rs = statement.executeQuery("DESCRIBE SELECT * FROM " + source)) {
+                while (rs.next()) {
+                    types.put(rs.getString("column_name"), rs.getString("column_type"));
+                }
+            }
+            Map<String, String> expectedTypes = new LinkedHashMap<>();
+            expectedTypes.put("studentId", "BIGINT");
+            expectedTypes.put("firstName", "VARCHAR");
+            expectedTypes.put("lastName", "VARCHAR");
+            expectedTypes.put("DOB", "DATE");
+            expectedTypes.put("class", "VARCHAR");
+            expectedTypes.put("score", "INTEGER");
+            assertEquals(expectedTypes, types);
+
+            try (ResultSet rs = statement.executeQuery("SELECT count(*), count(studentId), count(firstName), "
+                    + "count(lastName), count(DOB), count(class), count(score), sum(studentId), sum(score) FROM " + source)) {
+                assertTrue(rs.next());
+                assertEquals(ROWS, rs.getLong(1));
+                assertEquals(ROWS, rs.getLong(2));
+                assertEquals(ROWS - ROWS / 1000, rs.getLong(3), "empty first names are null");
+                assertEquals(ROWS, rs.getLong(4));
+                assertEquals(ROWS - ROWS / 5000, rs.getLong(5), "unparseable dates are null");
+                assertEquals(ROWS - ROWS / 7000, rs.getLong(6), "empty classes are null");
+                assertEquals(ROWS - ROWS / 3000, rs.getLong(7), "unparseable scores are null");
+
+                long idSum = 0;
+                long scoreSum = 0;
+                for (int i = 1; i <= ROWS; i++) {
+                    idSum += studentId(i);
+                    scoreSum += i % 3000 == 0 ? 0 : i % 101;
+                }
+                assertEquals(idSum, rs.getLong(8));
+                assertEquals(scoreSum, rs.getLong(9));
+            }
+
+            // Rows from each row group, including nulls and values needing more than 32 bits
+            for (int i : new int[]{1, 1000, 5000, 7000, 9000, ParquetConversionSink.ROW_GROUP_ROWS,
+                    ParquetConversionSink.ROW_GROUP_ROWS + 1, ROWS}) {
+                try (ResultSet rs = statement.executeQuery("SELECT * FROM " + source
+                        + " WHERE studentId = " + studentId(i))) {
+                    assertTrue(rs.next(), "row " + i);
+                    String[] expected = row(i);
+                    assertEquals(studentId(i), rs.getLong("studentId"));
+                    assertEquals(nullIfEmpty(expected[1]), rs.getString("firstName"));
+                    assertEquals(expected[2], rs.getString("lastName"));
+                    assertEquals(i % 5000 == 0 ? null : BASE_DATE.plusDays(i % 20000),
+                            rs.getObject("DOB", LocalDate.class));
+                    assertEquals(nullIfEmpty(expected[4]), rs.getString("class"));
+                    assertEquals(i % 3000 == 0 ? null : i % 101, rs.getObject("score"));
+                    assertFalse(rs.next());
+                }
+            }
+
+            try (ResultSet rs = statement.executeQuery("SELECT count(DISTINCT row_group_id), min(compression), "
+                    + "max(compression) FROM parquet_metadata('" + file.toString().replace("'", "''") + "')")) {
+                assertTrue(rs.next());
+                assertEquals(3, rs.getInt(1));
+                assertEquals("ZSTD", rs.getString(2));
+                assertEquals("ZSTD", rs.getString(3));
+            }
+        }
+    }
+
+    @Test
+    void duckDbReadsEmptyFile() throws IOException, SQLException {
+        Path file = tempDir.resolve("empty.parquet");
+        try (ConversionSink sink = ConversionOutputFormat.PARQUET.openSink(file)) {
+            sink.writeHeader(HEADERS);
+        }
+
+        try (Connection connection = DriverManager.getConnection("jdbc:duckdb:");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT count(*) FROM read_parquet('"
+                     + file.toString().replace("'", "''") + "')")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getLong(1));
+        }
+    }
+
+    private static long studentId(int i) {
+        return i % 2 == 0 ? BIG_ID + i : i;
+    }
+
+    // Converter output for row i: every 1000th first name and 7000th class empty, every 5000th date
+    // and 3000th score unparseable, and non-ASCII text
+    private static String[] row(int i) {
+        return new String[]{
+                Long.toString(studentId(i)),
+                i % 1000 == 0 ? "" : "Zoë" + i,
+                "Łukasz-" + (i % 97),
+                i % 5000 == 0 ? "31/12/1999" : BASE_DATE.plusDays(i % 20000).toString(),
+                i % 7000 == 0 ? "" : "Class " + (i % 13),
+                i % 3000 == 0 ? "n/a" : Integer.toString(i % 101)
+        };
+    }
+
+    private static String nullIfEmpty(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}